@@ -1,22 +1,27 @@
 package sk.master.backend.controller;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import sk.master.backend.persistence.dto.ApproximateGraphMetricsDto;
+import sk.master.backend.persistence.dto.BetweennessDto;
 import sk.master.backend.persistence.dto.GraphDto;
 import sk.master.backend.persistence.dto.GraphMetricsDto;
 import sk.master.backend.persistence.dto.GraphSummaryDto;
 import sk.master.backend.persistence.dto.RenameGraphDto;
 import sk.master.backend.persistence.dto.SaveGraphDto;
 import sk.master.backend.persistence.dto.SavedGraphDto;
-import sk.master.backend.persistence.model.PositionalData;
 import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.TrajectoryBatch;
 import sk.master.backend.persistence.repository.UserRepository;
 import sk.master.backend.service.util.FileService;
 import sk.master.backend.service.construct.GraphConstructionService;
+import sk.master.backend.service.metrics.GraphMetricsStreamService;
 
 import java.util.List;
 
@@ -27,24 +32,27 @@ public class GraphController {
     private final GraphConstructionService graphConstructionService;
     private final FileService fileService;
     private final UserRepository userRepository;
+    private final GraphMetricsStreamService metricsStreamService;
 
     public GraphController(GraphConstructionService graphConstructionService, FileService fileService,
-                           UserRepository userRepository) {
+                           UserRepository userRepository, GraphMetricsStreamService metricsStreamService) {
         this.fileService = fileService;
         this.graphConstructionService = graphConstructionService;
         this.userRepository = userRepository;
+        this.metricsStreamService = metricsStreamService;
     }
 
     @PostMapping("/file-import")
-    public ResponseEntity<GraphDto> generateGraphFromFile(@RequestParam("file") MultipartFile file) throws Exception {
-        List<PositionalData> positionalData = fileService.parseFile(file);
-        RoadGraph data = graphConstructionService.generateRoadNetwork(null, positionalData);
+    public ResponseEntity<GraphDto> generateGraphFromFile(@RequestParam("file") MultipartFile file,
+                                                          Authentication authentication) throws Exception {
+        TrajectoryBatch batch = fileService.parseFile(file);
+        RoadGraph data = graphConstructionService.generateRoadNetwork(resolveUserId(authentication), null, batch);
         return ResponseEntity.ok(GraphDto.fromRoadGraph(data, null));
     }
 
     @GetMapping("/city-import")
-    public ResponseEntity<GraphDto> importCityGraph(@RequestParam String city) {
-        RoadGraph roadGraph = graphConstructionService.importCityGraph(city);
+    public ResponseEntity<GraphDto> importCityGraph(@RequestParam String city, Authentication authentication) {
+        RoadGraph roadGraph = graphConstructionService.importCityGraph(resolveUserId(authentication), city);
         return ResponseEntity.ok(GraphDto.fromRoadGraph(roadGraph, null));
     }
 
@@ -54,19 +62,56 @@ public class GraphController {
     }
 
     @PostMapping("/sample-import/{filename}")
-    public ResponseEntity<GraphDto> importSampleFile(@PathVariable String filename) throws Exception {
-        List<PositionalData> positionalData = fileService.parseSampleFile(filename);
-        RoadGraph data = graphConstructionService.generateRoadNetwork(null, positionalData);
+    public ResponseEntity<GraphDto> importSampleFile(@PathVariable String filename,
+                                                     Authentication authentication) throws Exception {
+        TrajectoryBatch batch = fileService.parseSampleFile(filename);
+        RoadGraph data = graphConstructionService.generateRoadNetwork(resolveUserId(authentication), null, batch);
         return ResponseEntity.ok(GraphDto.fromRoadGraph(data, null));
     }
 
     @GetMapping("/metrics")
-    public ResponseEntity<GraphMetricsDto> computeCurrentGraphMetrics() {
-        GraphMetricsDto metrics = graphConstructionService.computeCurrentGraphMetrics();
+    public ResponseEntity<GraphMetricsDto> computeCurrentGraphMetrics(Authentication authentication) {
+        GraphMetricsDto metrics = graphConstructionService.computeCurrentGraphMetrics(resolveUserId(authentication));
         if (metrics == null) return ResponseEntity.notFound().build();
         return ResponseEntity.ok(metrics);
     }
 
+    @GetMapping("/metrics/approximate")
+    public ResponseEntity<ApproximateGraphMetricsDto> approximateCurrentGraphMetrics(
+            @RequestParam(required = false) Double relativeError,
+            @RequestParam(required = false) Long timeBudgetMs,
+            Authentication authentication) {
+        ApproximateGraphMetricsDto metrics = graphConstructionService.computeApproximateGraphMetrics(
+                resolveUserId(authentication), relativeError, timeBudgetMs);
+        if (metrics == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(metrics);
+    }
+
+    @GetMapping("/metrics/betweenness")
+    public ResponseEntity<BetweennessDto> computeCurrentGraphBetweenness(
+            @RequestParam(required = false) Integer samples,
+            @RequestParam(required = false) Integer topN,
+            Authentication authentication) {
+        BetweennessDto betweenness = graphConstructionService.computeBetweenness(
+                resolveUserId(authentication), samples, topN);
+        if (betweenness == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(betweenness);
+    }
+
+    @GetMapping(value = "/metrics/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamCurrentGraphMetrics(Authentication authentication) {
+        return metricsStreamService.stream(resolveUserId(authentication))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/metrics/stream")
+    public ResponseEntity<Void> cancelGraphMetricsStream(Authentication authentication) {
+        return metricsStreamService.cancel(resolveUserId(authentication))
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
     @GetMapping("/list")
     public ResponseEntity<List<GraphSummaryDto>> listGraphs(Authentication authentication) {
         return ResponseEntity.ok(graphConstructionService.listUserGraphs(resolveUserId(authentication)));
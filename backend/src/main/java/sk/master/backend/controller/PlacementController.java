@@ -2,20 +2,32 @@ package sk.master.backend.controller;
 
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import sk.master.backend.persistence.dto.PlacementRequestDto;
 import sk.master.backend.persistence.dto.PlacementResponseDto;
+import sk.master.backend.persistence.dto.StationVerificationRequestDto;
+import sk.master.backend.persistence.dto.StationVerificationResponseDto;
 import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.repository.UserRepository;
+import sk.master.backend.service.construct.GraphWorkspaceRegistry;
 import sk.master.backend.service.placement.ChargingStationPlacementService;
 
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api/placement")
 public class PlacementController {
 
     private final ChargingStationPlacementService placementService;
+    private final GraphWorkspaceRegistry workspaceRegistry;
+    private final UserRepository userRepository;
 
-    public PlacementController(ChargingStationPlacementService placementService) {
+    public PlacementController(ChargingStationPlacementService placementService,
+                               GraphWorkspaceRegistry workspaceRegistry, UserRepository userRepository) {
         this.placementService = placementService;
+        this.workspaceRegistry = workspaceRegistry;
+        this.userRepository = userRepository;
     }
 
     @PostMapping("/compute")
@@ -25,4 +37,24 @@ public class PlacementController {
         PlacementResponseDto response = placementService.computePlacement(graph, request);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Checks a station set against k-coverage on the posted graph, or on the user's current graph if none is posted.
+     */
+    @PostMapping("/verify")
+    public ResponseEntity<StationVerificationResponseDto> verifyStations(
+            @Valid @RequestBody StationVerificationRequestDto request, Authentication authentication) {
+        Optional<RoadGraph> graph = request.getGraph() != null
+                ? Optional.of(RoadGraph.fromDto(request.getGraph()))
+                : workspaceRegistry.getGraph(resolveUserId(authentication));
+        return graph
+                .map(g -> ResponseEntity.ok(placementService.verifyStations(g, request)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private Long resolveUserId(Authentication authentication) {
+        return userRepository.findByEmail(authentication.getName())
+                .orElseThrow(() -> new IllegalArgumentException("User not found"))
+                .getId();
+    }
 }
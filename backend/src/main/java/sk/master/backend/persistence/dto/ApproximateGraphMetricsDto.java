@@ -0,0 +1,28 @@
+package sk.master.backend.persistence.dto;
+
+/**
+ * {@link GraphMetricsDto} computed within a relative error target or a time budget, with the guaranteed
+ * (or, for the sampled clustering coefficient, 95 % confidence) interval of every approximated metric.
+ * The values in {@code metrics} are the estimates of the intervals.
+ */
+public record ApproximateGraphMetricsDto(
+        GraphMetricsDto metrics,
+        MetricBoundsDto diameterMeters,
+        MetricBoundsDto radiusMeters,
+        MetricBoundsDto clusteringCoefficient,
+        MetricBoundsDto treewidth,
+        double requestedRelativeError,
+        long timeBudgetMs,
+        long elapsedMs,
+        boolean targetReached
+) {
+    /**
+     * @param confidence 1.0 for deterministic bounds, 0.95 for a sampled confidence interval
+     */
+    public record MetricBoundsDto(
+            double estimate,
+            double lower,
+            double upper,
+            double confidence
+    ) {}
+}
@@ -0,0 +1,28 @@
+package sk.master.backend.persistence.dto;
+
+import java.util.List;
+
+/**
+ * Nodes with the highest (sampled) betweenness centrality, reported next to {@link GraphMetricsDto}.
+ *
+ * @param samples number of Brandes sources; {@code exact} when every node was one
+ */
+public record BetweennessDto(
+        List<NodeCentralityDto> topNodes,
+        int samples,
+        int nodeCount,
+        boolean exact,
+        long computationTimeMs
+) {
+    /**
+     * @param betweenness estimated number of shortest paths between other node pairs through the node
+     * @param normalized  {@code betweenness} divided by the number of such pairs, {@code (n - 1)(n - 2) / 2}
+     */
+    public record NodeCentralityDto(
+            String id,
+            double lat,
+            double lon,
+            double betweenness,
+            double normalized
+    ) {}
+}
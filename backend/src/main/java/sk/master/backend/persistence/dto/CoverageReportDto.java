@@ -0,0 +1,27 @@
+package sk.master.backend.persistence.dto;
+
+import java.util.List;
+
+/**
+ * k-coverage quality of a placement. Distances are network distances within {@code maxRadiusMeters};
+ * the k-th distance statistics cover only the nodes that are covered at least {@code k} times.
+ */
+public record CoverageReportDto(
+        int k,
+        Double maxRadiusMeters,
+        double coveredFraction,
+        int uncoveredNodes,
+        double meanKthDistanceMeters,
+        double maxKthDistanceMeters,
+        List<StationLoadDto> stationLoads
+) {
+    /**
+     * @param assignedNodes nodes for which the station is the nearest one
+     * @param coveringNodes nodes that count the station among their {@code k} nearest
+     */
+    public record StationLoadDto(
+            String id,
+            int assignedNodes,
+            int coveringNodes
+    ) {}
+}
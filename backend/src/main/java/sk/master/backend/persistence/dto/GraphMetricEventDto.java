@@ -0,0 +1,9 @@
+package sk.master.backend.persistence.dto;
+
+/**
+ * One metric of {@link GraphMetricsDto} sent as soon as it is computed; {@code name} is the DTO component name.
+ */
+public record GraphMetricEventDto(
+        String name,
+        Number value
+) {}
@@ -4,7 +4,9 @@ import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import sk.master.backend.persistence.model.ConstructionEngine;
 import sk.master.backend.persistence.model.PlacementAlgorithm;
+import sk.master.backend.persistence.model.TrajectoryInsertionMode;
 
 @Data
 @NoArgsConstructor
@@ -17,6 +19,12 @@ public class PipelineConfigDto {
     @Positive
     private double maxSpeedKmh;
 
+    @DecimalMin("0.0")
+    private double thinningMinDistanceMeters;
+
+    @DecimalMin("0.0")
+    private double thinningMinIntervalSeconds;
+
     @Min(0) @Max(15)
     private int h3DedupResolution;
 
@@ -44,6 +52,22 @@ public class PipelineConfigDto {
     @DecimalMin("0.0")
     private double cityBoundaryBufferMeters;
 
+    @DecimalMin("0.0")
+    private double simplifyToleranceMeters;
+
+    private TrajectoryInsertionMode insertionMode;
+
+    @DecimalMin("0.0")
+    private double snapToleranceMeters;
+
+    private ConstructionEngine constructionEngine;
+
+    @DecimalMin("0.0")
+    private double rasterCellMeters;
+
+    @Min(0)
+    private int rasterMinDensity;
+
     @NotNull
     private PlacementAlgorithm lastAlgorithm;
 
@@ -11,7 +11,8 @@ public record PlacementResponseDto(
         double objectiveValue,
         int totalNodes,
         Map<String, Double> coverageDistances,
-        long computationTimeMs
+        long computationTimeMs,
+        CoverageReportDto coverage
 ) {
     public record StationNodeDto(
             String id,
@@ -20,7 +21,7 @@ public record PlacementResponseDto(
             int rank
     ) {}
 
-    public static PlacementResponseDto fromResult(PlacementResult result, long computationTimeMs) {
+    public static PlacementResponseDto fromResult(PlacementResult result, long computationTimeMs, CoverageReportDto coverage) {
         List<StationNodeDto> stations = new ArrayList<>();
         for (int i = 0; i < result.getSelectedNodes().size(); i++) {
             var node = result.getSelectedNodes().get(i);
@@ -31,7 +32,8 @@ public record PlacementResponseDto(
                 result.getObjectiveValue(),
                 result.getNodeDistances().size(),
                 result.getNodeDistances(),
-                computationTimeMs
+                computationTimeMs,
+                coverage
         );
     }
 }
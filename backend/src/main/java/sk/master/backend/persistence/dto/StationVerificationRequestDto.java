@@ -0,0 +1,29 @@
+package sk.master.backend.persistence.dto;
+
+import jakarta.validation.constraints.*;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Station set to check against k-coverage. Without {@code graph} the user's current workspace graph is used.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationVerificationRequestDto {
+
+    private GraphDto graph;
+
+    @NotEmpty
+    private List<String> stationIds;
+
+    @Positive
+    private int k;
+
+    @NotNull @Positive
+    private Double maxRadiusMeters;
+}
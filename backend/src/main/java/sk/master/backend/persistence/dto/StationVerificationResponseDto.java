@@ -0,0 +1,21 @@
+package sk.master.backend.persistence.dto;
+
+import java.util.List;
+
+/**
+ * @param feasible           every node has at least {@code k} stations within {@code maxRadiusMeters}
+ * @param uncoveredNodeIds   nodes with fewer than {@code k} stations in range
+ * @param redundantStationIds stations whose removal alone keeps every node at its required coverage
+ * @param missingStationIds  requested stations that are not nodes of the graph; ignored by the check
+ */
+public record StationVerificationResponseDto(
+        boolean feasible,
+        int k,
+        double maxRadiusMeters,
+        int totalNodes,
+        int stationCount,
+        List<String> uncoveredNodeIds,
+        List<String> redundantStationIds,
+        List<String> missingStationIds,
+        long computationTimeMs
+) {}
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import sk.master.backend.persistence.model.ConstructionEngine;
 import sk.master.backend.persistence.model.PlacementAlgorithm;
+import sk.master.backend.persistence.model.TrajectoryInsertionMode;
 
 import java.time.LocalDateTime;
 
@@ -31,6 +33,12 @@ public class PipelineConfigEntity {
     @Column(name = "max_speed_kmh", nullable = false)
     private double maxSpeedKmh;
 
+    @Column(name = "thinning_min_distance_meters", nullable = false, columnDefinition = "double precision default 10")
+    private double thinningMinDistanceMeters;
+
+    @Column(name = "thinning_min_interval_seconds", nullable = false, columnDefinition = "double precision default 0")
+    private double thinningMinIntervalSeconds;
+
     @Column(name = "h3_dedup_resolution", nullable = false)
     private int h3DedupResolution;
 
@@ -58,6 +66,26 @@ public class PipelineConfigEntity {
     @Column(name = "city_boundary_buffer_meters", nullable = false, columnDefinition = "double precision default 0")
     private double cityBoundaryBufferMeters;
 
+    @Column(name = "simplify_tolerance_meters", nullable = false, columnDefinition = "double precision default 5")
+    private double simplifyToleranceMeters;
+
+    @Column(name = "insertion_mode", nullable = false, columnDefinition = "varchar(255) default 'MATCHED_POINTS'")
+    @Enumerated(EnumType.STRING)
+    private TrajectoryInsertionMode insertionMode;
+
+    @Column(name = "snap_tolerance_meters", nullable = false, columnDefinition = "double precision default 3")
+    private double snapToleranceMeters;
+
+    @Column(name = "construction_engine", nullable = false, columnDefinition = "varchar(255) default 'MAP_MATCHING'")
+    @Enumerated(EnumType.STRING)
+    private ConstructionEngine constructionEngine;
+
+    @Column(name = "raster_cell_meters", nullable = false, columnDefinition = "double precision default 5")
+    private double rasterCellMeters;
+
+    @Column(name = "raster_min_density", nullable = false, columnDefinition = "integer default 3")
+    private int rasterMinDensity;
+
     @Column(name = "last_algorithm", nullable = false)
     @Enumerated(EnumType.STRING)
     private PlacementAlgorithm lastAlgorithm;
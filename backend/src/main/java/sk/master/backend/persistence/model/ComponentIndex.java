@@ -0,0 +1,136 @@
+package sk.master.backend.persistence.model;
+
+import org.jgrapht.Graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Connected components of a {@link RoadGraph} kept in a union-find while nodes and edges are added.
+ * Nodes get dense union-find slots through an identity map, so lookups need neither the node id nor
+ * its hash; {@link RoadGraph} passes the node instances it registered.
+ * Union-find cannot split a set, so a removal only marks the index stale and the next query rebuilds
+ * it from the graph in one pass over the edges. Queries are synchronized — metrics read the
+ * components concurrently.
+ */
+final class ComponentIndex {
+
+    private final Map<RoadNode, Integer> slots = new IdentityHashMap<>();
+    private RoadNode[] nodes = new RoadNode[16];
+    private int[] parent = new int[16];
+    private int[] size = new int[16];
+    private int nodeCount;
+    private int componentCount;
+    private boolean stale;
+
+    synchronized void add(RoadNode node) {
+        if (stale) return;
+        if (nodeCount == parent.length) {
+            int capacity = parent.length * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            size = Arrays.copyOf(size, capacity);
+        }
+        slots.put(node, nodeCount);
+        nodes[nodeCount] = node;
+        parent[nodeCount] = nodeCount;
+        size[nodeCount] = 1;
+        nodeCount++;
+        componentCount++;
+    }
+
+    synchronized void union(RoadNode a, RoadNode b) {
+        if (stale) return;
+        Integer sa = slots.get(a), sb = slots.get(b);
+        if (sa == null || sb == null) {
+            // Not an instance this index registered; rebuild from the graph on the next query
+            invalidate();
+            return;
+        }
+        int ra = find(sa);
+        int rb = find(sb);
+        if (ra == rb) return;
+        if (size[ra] < size[rb]) {
+            int tmp = ra;
+            ra = rb;
+            rb = tmp;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+        componentCount--;
+    }
+
+    synchronized void invalidate() {
+        stale = true;
+        slots.clear();
+        Arrays.fill(nodes, 0, nodeCount, null);
+        nodeCount = 0;
+        componentCount = 0;
+    }
+
+    synchronized int componentCount(Graph<RoadNode, RoadEdge> graph) {
+        rebuildIfStale(graph);
+        return componentCount;
+    }
+
+    /**
+     * Component id of every node; ids are ordered by component size, 0 is the largest.
+     */
+    synchronized Map<String, Integer> componentIds(Graph<RoadNode, RoadEdge> graph) {
+        int[] rank = rankRoots(graph);
+        Map<String, Integer> ids = HashMap.newHashMap(nodeCount);
+        for (int i = 0; i < nodeCount; i++) ids.put(nodes[i].getId(), rank[find(i)]);
+        return Collections.unmodifiableMap(ids);
+    }
+
+    /**
+     * Sizes indexed by component id, largest first.
+     */
+    synchronized int[] componentSizes(Graph<RoadNode, RoadEdge> graph) {
+        int[] rank = rankRoots(graph);
+        int[] sizes = new int[componentCount];
+        for (int i = 0; i < nodeCount; i++) {
+            if (parent[i] == i) sizes[rank[i]] = size[i];
+        }
+        return sizes;
+    }
+
+    /**
+     * Component id of every root slot, by decreasing component size.
+     */
+    private int[] rankRoots(Graph<RoadNode, RoadEdge> graph) {
+        rebuildIfStale(graph);
+        Integer[] roots = new Integer[componentCount];
+        int k = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            if (parent[i] == i) roots[k++] = i;
+        }
+        Arrays.sort(roots, (x, y) -> Integer.compare(size[y], size[x]));
+        int[] rank = new int[nodeCount];
+        for (int c = 0; c < componentCount; c++) rank[roots[c]] = c;
+        return rank;
+    }
+
+    private void rebuildIfStale(Graph<RoadNode, RoadEdge> graph) {
+        if (!stale) return;
+        stale = false;
+        for (RoadNode node : graph.vertexSet()) add(node);
+        for (RoadEdge edge : graph.edgeSet()) {
+            union(graph.getEdgeSource(edge), graph.getEdgeTarget(edge));
+        }
+    }
+
+    /**
+     * Root with path halving.
+     */
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
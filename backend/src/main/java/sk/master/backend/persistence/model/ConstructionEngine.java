@@ -0,0 +1,6 @@
+package sk.master.backend.persistence.model;
+
+public enum ConstructionEngine {
+    MAP_MATCHING,
+    DENSITY_RASTER
+}
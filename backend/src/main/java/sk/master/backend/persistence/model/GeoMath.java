@@ -0,0 +1,127 @@
+package sk.master.backend.persistence.model;
+
+/**
+ * Geodesic distances on a spherical Earth shared by the whole pipeline.
+ * <p>
+ * Road graphs consist almost entirely of short segments, so distances below
+ * {@link #FAST_PATH_MAX_DEGREES} use the equirectangular approximation, whose relative error
+ * against haversine stays below 1e-5 there. Longer distances fall back to haversine.
+ * {@link RoadNode} caches its latitude in radians and its cosine, so node-to-node distances
+ * need no trigonometry on the fast path.
+ */
+public final class GeoMath {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_000.0;
+
+    /**
+     * Coordinate difference (degrees) up to which the equirectangular approximation is used — about 1.1 km.
+     */
+    public static final double FAST_PATH_MAX_DEGREES = 0.01;
+    private static final double FAST_PATH_MAX_RADIANS = Math.toRadians(FAST_PATH_MAX_DEGREES);
+
+    private GeoMath() {
+    }
+
+    /**
+     * Distance in meters between two points given in degrees.
+     */
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLatDeg = lat2 - lat1;
+        double dLonDeg = lon2 - lon1;
+        if (Math.abs(dLatDeg) < FAST_PATH_MAX_DEGREES && Math.abs(dLonDeg) < FAST_PATH_MAX_DEGREES) {
+            double x = Math.toRadians(dLonDeg) * Math.cos(Math.toRadians((lat1 + lat2) * 0.5));
+            double y = Math.toRadians(dLatDeg);
+            return EARTH_RADIUS_METERS * Math.sqrt(x * x + y * y);
+        }
+        return haversine(lat1, lon1, lat2, lon2);
+    }
+
+    /**
+     * Distance in meters between two nodes, using their cached radians and cosines.
+     */
+    public static double distance(RoadNode a, RoadNode b) {
+        return distanceRad(a.getLatRad(), a.getLonRad(), a.getCosLat(), b.getLatRad(), b.getLonRad(), b.getCosLat());
+    }
+
+    /**
+     * Distance in meters for coordinates already converted to radians, with precomputed latitude cosines.
+     */
+    public static double distanceRad(double lat1Rad, double lon1Rad, double cosLat1,
+                                     double lat2Rad, double lon2Rad, double cosLat2) {
+        double dLat = lat2Rad - lat1Rad;
+        double dLon = lon2Rad - lon1Rad;
+        if (Math.abs(dLat) < FAST_PATH_MAX_RADIANS && Math.abs(dLon) < FAST_PATH_MAX_RADIANS) {
+            // Mean of the cosines differs from cos(mean latitude) only by O(dLat²)
+            double x = dLon * (cosLat1 + cosLat2) * 0.5;
+            return EARTH_RADIUS_METERS * Math.sqrt(x * x + dLat * dLat);
+        }
+        double sinLat = Math.sin(dLat * 0.5);
+        double sinLon = Math.sin(dLon * 0.5);
+        double h = sinLat * sinLat + cosLat1 * cosLat2 * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h));
+    }
+
+    /**
+     * Exact haversine distance in meters, without the fast path.
+     */
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(dLat * 0.5);
+        double sinLon = Math.sin(dLon * 0.5);
+        double h = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h));
+    }
+
+    // ====== Batch API ======
+
+    /**
+     * {@code out[i]} = distance between point {@code i} of the first and the second coordinate arrays.
+     */
+    public static void distances(double[] lats1, double[] lons1, double[] lats2, double[] lons2, double[] out) {
+        int n = out.length;
+        if (lats1.length < n || lons1.length < n || lats2.length < n || lons2.length < n) {
+            throw new IllegalArgumentException("Coordinate arrays are shorter than the output array");
+        }
+        for (int i = 0; i < n; i++) {
+            out[i] = distance(lats1[i], lons1[i], lats2[i], lons2[i]);
+        }
+    }
+
+    /**
+     * {@code out[i]} = distance between consecutive points {@code i} and {@code i + 1} of a polyline;
+     * {@code out} must hold {@code lats.length - 1} values. Each cosine is computed once.
+     */
+    public static void segmentLengths(double[] lats, double[] lons, double[] out) {
+        int n = lats.length;
+        if (lons.length != n || out.length < n - 1) {
+            throw new IllegalArgumentException("Invalid coordinate or output array length");
+        }
+        if (n < 2) return;
+        double prevLat = Math.toRadians(lats[0]);
+        double prevLon = Math.toRadians(lons[0]);
+        double prevCos = Math.cos(prevLat);
+        for (int i = 1; i < n; i++) {
+            double lat = Math.toRadians(lats[i]);
+            double lon = Math.toRadians(lons[i]);
+            double cos = Math.cos(lat);
+            out[i - 1] = distanceRad(prevLat, prevLon, prevCos, lat, lon, cos);
+            prevLat = lat;
+            prevLon = lon;
+            prevCos = cos;
+        }
+    }
+
+    /**
+     * Total length of a polyline in meters.
+     */
+    public static double pathLength(double[] lats, double[] lons) {
+        if (lats.length < 2) return 0.0;
+        double[] lengths = new double[lats.length - 1];
+        segmentLengths(lats, lons, lengths);
+        double total = 0.0;
+        for (double length : lengths) total += length;
+        return total;
+    }
+}
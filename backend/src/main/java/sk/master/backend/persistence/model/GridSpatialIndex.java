@@ -0,0 +1,93 @@
+package sk.master.backend.persistence.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Grid hash of fixed-size lat/lon cells. Nodes are kept in a small list per cell, so insert and
+ * delete are expected O(1) (a cell holds only a handful of nodes) and there is no tree to rebalance.
+ */
+public class GridSpatialIndex implements SpatialIndex {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    public static final double DEFAULT_CELL_METERS = 50.0;
+
+    private final double cellDegrees;
+    private final Map<Long, List<RoadNode>> cells = new HashMap<>();
+    private int size;
+
+    public GridSpatialIndex() {
+        this(DEFAULT_CELL_METERS);
+    }
+
+    public GridSpatialIndex(double cellMeters) {
+        this.cellDegrees = cellMeters / METERS_PER_DEGREE;
+    }
+
+    @Override
+    public void insert(RoadNode node) {
+        cells.computeIfAbsent(keyOf(node.getLat(), node.getLon()), _ -> new ArrayList<>(4)).add(node);
+        size++;
+    }
+
+    @Override
+    public void remove(RoadNode node) {
+        long key = keyOf(node.getLat(), node.getLon());
+        List<RoadNode> cell = cells.get(key);
+        if (cell == null) return;
+        int i = cell.indexOf(node);
+        if (i < 0) return;
+        // Swap with the last element — order inside a cell does not matter
+        int last = cell.size() - 1;
+        cell.set(i, cell.get(last));
+        cell.remove(last);
+        if (cell.isEmpty()) cells.remove(key);
+        size--;
+    }
+
+    @Override
+    public void forEachCandidate(double minLat, double minLon, double maxLat, double maxLon, Consumer<RoadNode> consumer) {
+        long fromLat = cellOf(minLat), toLat = cellOf(maxLat);
+        long fromLon = cellOf(minLon), toLon = cellOf(maxLon);
+
+        // Large query boxes: scanning the occupied cells is cheaper than probing empty ones
+        if ((toLat - fromLat + 1) * (toLon - fromLon + 1) > cells.size()) {
+            for (List<RoadNode> cell : cells.values()) {
+                for (RoadNode node : cell) {
+                    if (node.getLat() >= minLat && node.getLat() <= maxLat
+                            && node.getLon() >= minLon && node.getLon() <= maxLon) {
+                        consumer.accept(node);
+                    }
+                }
+            }
+            return;
+        }
+
+        for (long latCell = fromLat; latCell <= toLat; latCell++) {
+            for (long lonCell = fromLon; lonCell <= toLon; lonCell++) {
+                List<RoadNode> cell = cells.get(key(latCell, lonCell));
+                if (cell != null) cell.forEach(consumer);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private long cellOf(double degrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private long keyOf(double lat, double lon) {
+        return key(cellOf(lat), cellOf(lon));
+    }
+
+    private static long key(long latCell, long lonCell) {
+        return (latCell << 32) | (lonCell & 0xffffffffL);
+    }
+}
@@ -0,0 +1,16 @@
+package sk.master.backend.persistence.model;
+
+import java.util.List;
+
+/**
+ * Continuous piece of a trip after map matching. Off-road segments carry the raw GPS points
+ * of a part of the trip that could not be matched and no edges.
+ *
+ * @param edgeIds GraphHopper base graph edge ids traversed by the matched path, in traversal order
+ */
+public record MatchedSegment(List<PositionalData> points, List<Integer> edgeIds, boolean offRoad) {
+
+    public static MatchedSegment offRoad(List<PositionalData> points) {
+        return new MatchedSegment(points, List.of(), true);
+    }
+}
@@ -10,9 +10,17 @@ import lombok.NoArgsConstructor;
 public class PipelineConfig {
 
     private double maxSpeedKmh;
+    private double thinningMinDistanceMeters;
+    private double thinningMinIntervalSeconds;
     private int h3DedupResolution;
     private String cityCountry;
     private double retainLargestComponentPercent;
     private double cityBoundaryBufferMeters;
+    private double simplifyToleranceMeters;
+    private TrajectoryInsertionMode insertionMode;
+    private double snapToleranceMeters;
+    private ConstructionEngine constructionEngine;
+    private double rasterCellMeters;
+    private int rasterMinDensity;
 
 }
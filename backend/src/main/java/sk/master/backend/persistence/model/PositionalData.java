@@ -14,6 +14,7 @@ public class PositionalData {
     private double lon;
     private Instant timestamp;
     private int tripId;
+    private boolean junction;    // true if the point is a road junction (GraphHopper tower node) after matching
 
     public PositionalData(double lat, double lon, Instant timestamp) {
         this.lat = lat;
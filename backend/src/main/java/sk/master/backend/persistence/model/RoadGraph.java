@@ -3,25 +3,39 @@ package sk.master.backend.persistence.model;
 import lombok.Getter;
 import org.jgrapht.Graph;
 import org.jgrapht.graph.SimpleWeightedGraph;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Envelope;
-import org.locationtech.jts.index.quadtree.Quadtree;
 
 import sk.master.backend.persistence.dto.GraphDto;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class RoadGraph {
 
     @Getter
     private final Graph<RoadNode, RoadEdge> graph;
-    private final Quadtree spatialIndex;
     private final Map<String, RoadNode> nodeMap;
+    private final Supplier<SpatialIndex> spatialIndexFactory;
+    // Built from all nodes on the first spatial query, kept in sync afterwards
+    private SpatialIndex spatialIndex;
+    /**
+     * Incremented by every structural change; cached metrics are valid only for the version they were computed at.
+     */
+    @Getter
+    private volatile long version;
+    // Maintained on every edge change, so cheap metrics need no pass over the edges
+    @Getter
+    private double totalEdgeLengthMeters;
+    private final ComponentIndex components = new ComponentIndex();
 
     public RoadGraph() {
+        this(GridSpatialIndex::new);
+    }
+
+    public RoadGraph(Supplier<SpatialIndex> spatialIndexFactory) {
         this.graph = new SimpleWeightedGraph<>(RoadEdge.class);
-        this.spatialIndex = new Quadtree();
         this.nodeMap = new HashMap<>();
+        this.spatialIndexFactory = spatialIndexFactory;
     }
 
 
@@ -52,7 +66,9 @@ public class RoadGraph {
         }
         graph.addVertex(node);
         nodeMap.put(node.getId(), node);
-        spatialIndex.insert(envelopeOf(node), node);
+        if (spatialIndex != null) spatialIndex.insert(node);
+        components.add(node);
+        version++;
     }
 
     public RoadNode getNode(String id) {
@@ -68,9 +84,14 @@ public class RoadGraph {
     }
 
     public void removeNode(RoadNode node) {
+        if (!graph.containsVertex(node)) return;
+        for (RoadEdge edge : graph.edgesOf(node)) totalEdgeLengthMeters -= edge.distanceMeters();
         graph.removeVertex(node); // automatically removes associated edges
-        nodeMap.remove(node.getId());
-        spatialIndex.remove(envelopeOf(node), node);
+        if (nodeMap.remove(node.getId()) != null && spatialIndex != null) {
+            spatialIndex.remove(node);
+        }
+        components.invalidate();
+        version++;
     }
 
     // =====================================================================
@@ -82,6 +103,9 @@ public class RoadGraph {
      * Weight is set to distance in meters.
      */
     public void addEdge(RoadNode source, RoadNode target, double distanceMeters) {
+        // Edges hold the registered instances, also when the caller passes an equal copy
+        source = nodeMap.getOrDefault(source.getId(), source);
+        target = nodeMap.getOrDefault(target.getId(), target);
         if (graph.containsEdge(source, target)) {
             graph.getEdge(source, target);
             return;
@@ -89,6 +113,9 @@ public class RoadGraph {
         RoadEdge edge = new RoadEdge(source.getId(), target.getId(), distanceMeters);
         graph.addEdge(source, target, edge);
         graph.setEdgeWeight(edge, distanceMeters);
+        totalEdgeLengthMeters += distanceMeters;
+        components.union(source, target);
+        version++;
     }
 
     public Set<RoadEdge> getEdges() {
@@ -106,8 +133,89 @@ public class RoadGraph {
         return graph.edgeSet().size();
     }
 
-    private Envelope envelopeOf(RoadNode node) {
-        return new Envelope(new Coordinate(node.getLon(), node.getLat()));
+    public double getAverageDegree() {
+        return nodeMap.isEmpty() ? 0.0 : 2.0 * getEdgeCount() / nodeMap.size();
+    }
+
+    public double getAverageEdgeLengthMeters() {
+        int edgeCount = getEdgeCount();
+        return edgeCount == 0 ? 0.0 : totalEdgeLengthMeters / edgeCount;
+    }
+
+    // =====================================================================
+    // Connected components
+    // =====================================================================
+
+    public int getComponentCount() {
+        return components.componentCount(graph);
+    }
+
+    /**
+     * Component id by node id; ids are ordered by component size, 0 is the largest component.
+     */
+    public Map<String, Integer> getComponentIds() {
+        return components.componentIds(graph);
+    }
+
+    /**
+     * Component sizes indexed by component id, largest first.
+     */
+    public int[] getComponentSizes() {
+        return components.componentSizes(graph);
     }
-}
 
+    // =====================================================================
+    // Spatial queries
+    // =====================================================================
+
+    /**
+     * All nodes within {@code radiusMeters} of the given point, closest first.
+     */
+    public List<RoadNode> findWithinRadius(double lat, double lon, double radiusMeters) {
+        List<RoadNode> result = new ArrayList<>();
+        forEachCandidate(lat, lon, radiusMeters, node -> {
+            if (GeoMath.distance(lat, lon, node.getLat(), node.getLon()) <= radiusMeters) {
+                result.add(node);
+            }
+        });
+        result.sort(Comparator.comparingDouble(n -> GeoMath.distance(lat, lon, n.getLat(), n.getLon())));
+        return result;
+    }
+
+    /**
+     * Closest node within {@code maxRadiusMeters} of the given point.
+     */
+    public Optional<RoadNode> findNearest(double lat, double lon, double maxRadiusMeters) {
+        RoadNode[] best = {null};
+        double[] bestDist = {maxRadiusMeters};
+        forEachCandidate(lat, lon, maxRadiusMeters, node -> {
+            double d = GeoMath.distance(lat, lon, node.getLat(), node.getLon());
+            if (d <= bestDist[0]) {
+                bestDist[0] = d;
+                best[0] = node;
+            }
+        });
+        return Optional.ofNullable(best[0]);
+    }
+
+    /**
+     * Candidates in the bounding box of a circle; the index may return more than the circle contains.
+     */
+    private void forEachCandidate(double lat, double lon, double radiusMeters, Consumer<RoadNode> consumer) {
+        double dLat = Math.toDegrees(radiusMeters / GeoMath.EARTH_RADIUS_METERS);
+        double dLon = dLat / Math.max(Math.cos(Math.toRadians(lat)), 1e-6);
+        spatialIndex().forEachCandidate(lat - dLat, lon - dLon, lat + dLat, lon + dLon, consumer);
+    }
+
+    /**
+     * Lazily bulk-loads the index — graphs used only for placement never pay for it.
+     */
+    private SpatialIndex spatialIndex() {
+        if (spatialIndex == null) {
+            SpatialIndex index = spatialIndexFactory.get();
+            nodeMap.values().forEach(index::insert);
+            spatialIndex = index;
+        }
+        return spatialIndex;
+    }
+}
@@ -16,6 +16,14 @@ public class RoadNode {
     @Getter
     private double lon;
 
+    // Cached for GeoMath — node coordinates never change after construction
+    @Getter
+    private final double latRad;
+    @Getter
+    private final double lonRad;
+    @Getter
+    private final double cosLat;
+
     @Setter
     @Getter
     private boolean offRoad;     // true if point was not snapped to a road
@@ -26,16 +34,16 @@ public class RoadNode {
 
 
     public RoadNode(double lat, double lon) {
-        this.id = UUID.randomUUID().toString();
-        this.lat = lat;
-        this.lon = lon;
-        this.offRoad = false;
+        this(UUID.randomUUID().toString(), lat, lon);
     }
 
     public RoadNode(String id, double lat, double lon) {
         this.id = id;
         this.lat = lat;
         this.lon = lon;
+        this.latRad = Math.toRadians(lat);
+        this.lonRad = Math.toRadians(lon);
+        this.cosLat = Math.cos(latRad);
         this.offRoad = false;
     }
 
@@ -0,0 +1,18 @@
+package sk.master.backend.persistence.model;
+
+import java.util.function.Consumer;
+
+/**
+ * Point index over the nodes of a {@link RoadGraph}. Queries return candidates inside the bounding box;
+ * exact distance filtering is left to the caller.
+ */
+public interface SpatialIndex {
+
+    void insert(RoadNode node);
+
+    void remove(RoadNode node);
+
+    void forEachCandidate(double minLat, double minLon, double maxLat, double maxLon, Consumer<RoadNode> consumer);
+
+    int size();
+}
@@ -0,0 +1,139 @@
+package sk.master.backend.persistence.model;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Columnar batch of GPS points as parsed from an uploaded file. Coordinates, timestamps and trip ids
+ * are kept in primitive arrays, so millions of points do not mean millions of objects.
+ * {@link PositionalData} objects are only created for the points that survive preprocessing.
+ * <p>
+ * Timestamps are stored at millisecond resolution; sub-millisecond parts of parsed timestamps are
+ * truncated. Receivers report at most a few fixes per second, so points of one trip less than 1 ms
+ * apart are treated as simultaneous: they keep their file order in {@link #sortedByTripAndTime()}
+ * and count as the same instant in duplicate and interval filtering.
+ */
+public class TrajectoryBatch {
+
+    /**
+     * Marker stored in {@code epochMillis} for points without a timestamp.
+     */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private double[] lats;
+    private double[] lons;
+    private long[] epochMillis;
+    private int[] tripIds;
+    private int size;
+
+    public TrajectoryBatch() {
+        this(1024);
+    }
+
+    public TrajectoryBatch(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        this.lats = new double[capacity];
+        this.lons = new double[capacity];
+        this.epochMillis = new long[capacity];
+        this.tripIds = new int[capacity];
+    }
+
+    /**
+     * @param timestamp truncated to milliseconds; {@code null} for a point without a timestamp
+     */
+    public void add(double lat, double lon, Instant timestamp, int tripId) {
+        add(lat, lon, timestamp != null ? timestamp.toEpochMilli() : NO_TIMESTAMP, tripId);
+    }
+
+    public void add(double lat, double lon, long epochMilli, int tripId) {
+        if (size == lats.length) {
+            int capacity = size * 2;
+            lats = Arrays.copyOf(lats, capacity);
+            lons = Arrays.copyOf(lons, capacity);
+            epochMillis = Arrays.copyOf(epochMillis, capacity);
+            tripIds = Arrays.copyOf(tripIds, capacity);
+        }
+        lats[size] = lat;
+        lons[size] = lon;
+        epochMillis[size] = epochMilli;
+        tripIds[size] = tripId;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public double lat(int i) {
+        return lats[i];
+    }
+
+    public double lon(int i) {
+        return lons[i];
+    }
+
+    public long epochMillis(int i) {
+        return epochMillis[i];
+    }
+
+    public boolean hasTimestamp(int i) {
+        return epochMillis[i] != NO_TIMESTAMP;
+    }
+
+    public int tripId(int i) {
+        return tripIds[i];
+    }
+
+    public PositionalData toPositionalData(int i) {
+        Instant timestamp = hasTimestamp(i) ? Instant.ofEpochMilli(epochMillis[i]) : null;
+        return new PositionalData(lats[i], lons[i], timestamp, tripIds[i]);
+    }
+
+    /**
+     * Index permutation ordering the points by trip id and then chronologically, points without
+     * a timestamp last within their trip. The sort is stable, so untimed points keep the file order.
+     */
+    public int[] sortedByTripAndTime() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+
+        // Uploaded files are usually already ordered — skip the sort then
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++) {
+            sorted = compare(order[i - 1], order[i]) <= 0;
+        }
+        if (sorted) return order;
+
+        // Bottom-up merge sort over the permutation (stable, no boxing)
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int lo = 0; lo < size - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, size);
+                if (compare(order[mid - 1], order[mid]) <= 0) continue; // runs already in order
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) {
+                    buffer[k++] = compare(order[j], order[i]) < 0 ? order[j++] : order[i++];
+                }
+                while (i < mid) buffer[k++] = order[i++];
+                while (j < hi) buffer[k++] = order[j++];
+                System.arraycopy(buffer, lo, order, lo, hi - lo);
+            }
+        }
+        return order;
+    }
+
+    private int compare(int a, int b) {
+        int byTrip = Integer.compare(tripIds[a], tripIds[b]);
+        if (byTrip != 0) return byTrip;
+        return Long.compare(sortKey(a), sortKey(b));
+    }
+
+    private long sortKey(int i) {
+        return epochMillis[i] == NO_TIMESTAMP ? Long.MAX_VALUE : epochMillis[i];
+    }
+}
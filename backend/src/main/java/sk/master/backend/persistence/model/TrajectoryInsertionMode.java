@@ -0,0 +1,7 @@
+package sk.master.backend.persistence.model;
+
+public enum TrajectoryInsertionMode {
+    MATCHED_POINTS,
+    GRAPHHOPPER_EDGES,
+    SNAP_TO_EXISTING
+}
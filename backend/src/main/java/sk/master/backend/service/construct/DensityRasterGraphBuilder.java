@@ -0,0 +1,326 @@
+package sk.master.backend.service.construct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import sk.master.backend.persistence.model.GeoMath;
+import sk.master.backend.persistence.model.PipelineConfig;
+import sk.master.backend.persistence.model.PositionalData;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+
+import java.util.*;
+
+/**
+ * Road graph construction without map matching.
+ * <ol>
+ *     <li>Every trip is drawn into a fine grid on a local equirectangular projection (trips in parallel);
+ *     a cell counts how many trips crossed it.</li>
+ *     <li>Cells whose 3×3 neighbourhood was crossed by at least {@code rasterMinDensity} trips form the road mask.</li>
+ *     <li>Zhang–Suen thinning reduces the mask to one-cell-wide centerlines.</li>
+ *     <li>Centerline chains between junctions and end cells become simplified polylines of the {@link RoadGraph}.</li>
+ * </ol>
+ * Runtime is linear in the number of points (and the length of the trips in cells); GraphHopper is not used.
+ */
+@Component
+public class DensityRasterGraphBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(DensityRasterGraphBuilder.class);
+    private static final double METERS_PER_DEGREE = GeoMath.EARTH_RADIUS_METERS * Math.PI / 180.0;
+    private static final double DEFAULT_CELL_METERS = 5.0;
+    // Consecutive points further apart are not connected — a straight line would cut through buildings
+    private static final double MAX_GAP_METERS = 100.0;
+    // Dead-end chains of at most this many cells are thinning artifacts, not roads
+    private static final int SPUR_MAX_CELLS = 3;
+    private static final int NEIGHBOURHOOD_CELLS_PER_TRIP = 3;
+
+    // Zhang–Suen neighbour order P2..P9: N, NE, E, SE, S, SW, W, NW
+    private static final int[] DX = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] DY = {1, 1, 0, -1, -1, -1, 0, 1};
+
+    private final TrajectorySimplifier trajectorySimplifier;
+
+    public DensityRasterGraphBuilder(TrajectorySimplifier trajectorySimplifier) {
+        this.trajectorySimplifier = trajectorySimplifier;
+    }
+
+    public RoadGraph build(List<List<PositionalData>> trips, PipelineConfig config) {
+        RoadGraph roadGraph = new RoadGraph();
+        if (trips.isEmpty()) return roadGraph;
+
+        double cellMeters = config.getRasterCellMeters() > 0 ? config.getRasterCellMeters() : DEFAULT_CELL_METERS;
+        int minDensity = Math.max(1, config.getRasterMinDensity());
+        Projection projection = new Projection(trips.getFirst().getFirst(), cellMeters);
+
+        // 1) Rasterization — each trip contributes at most 1 to a cell
+        Map<Long, Integer> density = trips.parallelStream()
+                .map(trip -> rasterizeTrip(trip, projection))
+                .collect(HashMap<Long, Integer>::new,
+                        (map, cells) -> cells.forEach(cell -> map.merge(cell, 1, Integer::sum)),
+                        (a, b) -> b.forEach((cell, count) -> a.merge(cell, count, Integer::sum)));
+
+        // 2) Road mask: density summed over the 3×3 neighbourhood absorbs GPS noise across the road.
+        // A trip passing straight through the neighbourhood adds NEIGHBOURHOOD_CELLS_PER_TRIP to the sum.
+        int minNeighbourhoodDensity = minDensity * NEIGHBOURHOOD_CELLS_PER_TRIP;
+        Set<Long> mask = new HashSet<>();
+        for (Long cell : density.keySet()) {
+            int x = cellX(cell), y = cellY(cell);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    long candidate = key(x + dx, y + dy);
+                    if (!mask.contains(candidate) && neighbourhoodDensity(density, x + dx, y + dy) >= minNeighbourhoodDensity) {
+                        mask.add(candidate);
+                    }
+                }
+            }
+        }
+        log.info("Density raster: {} visited cells, {} road cells (cell {} m, min density {})",
+                density.size(), mask.size(), cellMeters, minDensity);
+
+        // 3) Thinning to centerlines
+        int iterations = thin(mask);
+        log.info("Density raster: thinned to {} centerline cells in {} iterations", mask.size(), iterations);
+
+        // 4) Vectorization
+        int chains = vectorize(mask, projection, cellMeters, roadGraph);
+        log.info("Density raster: {} centerline chains -> {} nodes, {} edges",
+                chains, roadGraph.getNodeCount(), roadGraph.getEdgeCount());
+        return roadGraph;
+    }
+
+    // ====== Rasterization ======
+
+    private Set<Long> rasterizeTrip(List<PositionalData> trip, Projection projection) {
+        Set<Long> cells = new HashSet<>();
+        double maxGapCells = MAX_GAP_METERS / projection.cellMeters;
+        double prevX = Double.NaN, prevY = Double.NaN;
+        for (PositionalData p : trip) {
+            double x = projection.x(p.getLon());
+            double y = projection.y(p.getLat());
+            if (Double.isNaN(prevX) || Math.hypot(x - prevX, y - prevY) > maxGapCells) {
+                cells.add(key((int) Math.floor(x), (int) Math.floor(y)));
+            } else {
+                // DDA walk along the segment, at most one step per cell
+                int steps = (int) Math.ceil(Math.max(Math.abs(x - prevX), Math.abs(y - prevY)));
+                for (int s = 1; s <= steps; s++) {
+                    double t = (double) s / steps;
+                    cells.add(key((int) Math.floor(prevX + (x - prevX) * t), (int) Math.floor(prevY + (y - prevY) * t)));
+                }
+            }
+            prevX = x;
+            prevY = y;
+        }
+        return cells;
+    }
+
+    private int neighbourhoodDensity(Map<Long, Integer> density, int x, int y) {
+        int sum = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                sum += density.getOrDefault(key(x + dx, y + dy), 0);
+            }
+        }
+        return sum;
+    }
+
+    // ====== Zhang–Suen thinning ======
+
+    /**
+     * Thins the mask in place; each sub-iteration only reads the mask, so candidates are evaluated in parallel.
+     */
+    private int thin(Set<Long> mask) {
+        int iterations = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            iterations++;
+            for (int step = 0; step < 2; step++) {
+                final int subIteration = step;
+                List<Long> removable = mask.parallelStream()
+                        .filter(cell -> isRemovable(mask, cell, subIteration))
+                        .toList();
+                removable.forEach(mask::remove);
+                changed |= !removable.isEmpty();
+            }
+        }
+        return iterations;
+    }
+
+    private boolean isRemovable(Set<Long> mask, long cell, int subIteration) {
+        int x = cellX(cell), y = cellY(cell);
+        boolean[] p = new boolean[8];
+        int neighbours = 0;
+        for (int i = 0; i < 8; i++) {
+            p[i] = mask.contains(key(x + DX[i], y + DY[i]));
+            if (p[i]) neighbours++;
+        }
+        if (neighbours < 2 || neighbours > 6) return false;
+
+        int transitions = 0;
+        for (int i = 0; i < 8; i++) {
+            if (!p[i] && p[(i + 1) % 8]) transitions++;
+        }
+        if (transitions != 1) return false;
+
+        // p[0]=N(P2), p[2]=E(P4), p[4]=S(P6), p[6]=W(P8)
+        if (subIteration == 0) {
+            return !(p[0] && p[2] && p[4]) && !(p[2] && p[4] && p[6]);
+        }
+        return !(p[0] && p[2] && p[6]) && !(p[0] && p[4] && p[6]);
+    }
+
+    // ====== Vectorization ======
+
+    /**
+     * Walks the centerline cells into chains between key cells (junctions and ends, degree ≠ 2)
+     * and inserts each chain as a simplified polyline. Key cells share one node per cell.
+     */
+    private int vectorize(Set<Long> skeleton, Projection projection, double cellMeters, RoadGraph roadGraph) {
+        Map<Long, RoadNode> keyNodes = new HashMap<>();
+        Set<Long> visited = new HashSet<>();
+        int chains = 0;
+
+        List<Long> keyCells = skeleton.stream().filter(cell -> neighbours(skeleton, cell).size() != 2).sorted().toList();
+        Set<Long> keySet = new HashSet<>(keyCells);
+
+        for (long start : keyCells) {
+            for (long next : neighbours(skeleton, start)) {
+                if (keySet.contains(next)) {
+                    // Adjacent key cells — emit the short edge once
+                    if (start < next && insertChain(List.of(start, next), skeleton, projection, cellMeters, keyNodes, roadGraph)) chains++;
+                    continue;
+                }
+                if (visited.contains(next)) continue;
+                List<Long> path = walk(skeleton, keySet, visited, start, next);
+                if (insertChain(path, skeleton, projection, cellMeters, keyNodes, roadGraph)) chains++;
+            }
+        }
+
+        // Closed loops without any junction
+        for (long cell : skeleton.stream().sorted().toList()) {
+            if (keySet.contains(cell) || visited.contains(cell)) continue;
+            keySet.add(cell);
+            List<Long> loop = walk(skeleton, keySet, visited, cell, neighbours(skeleton, cell).getFirst());
+            if (insertChain(loop, skeleton, projection, cellMeters, keyNodes, roadGraph)) chains++;
+        }
+        return chains;
+    }
+
+    private List<Long> walk(Set<Long> skeleton, Set<Long> keySet, Set<Long> visited, long start, long first) {
+        List<Long> path = new ArrayList<>();
+        path.add(start);
+        long prev = start;
+        long current = first;
+        while (!keySet.contains(current)) {
+            path.add(current);
+            visited.add(current);
+            long following = current;
+            for (long n : neighbours(skeleton, current)) {
+                if (n != prev) {
+                    following = n;
+                    break;
+                }
+            }
+            if (following == current) break; // defensive: degree-2 cells always have another neighbour
+            prev = current;
+            current = following;
+        }
+        path.add(current);
+        return path;
+    }
+
+    private boolean insertChain(List<Long> path, Set<Long> skeleton, Projection projection, double cellMeters,
+                                Map<Long, RoadNode> keyNodes, RoadGraph roadGraph) {
+        boolean deadEnd = neighbours(skeleton, path.getFirst()).size() == 1 || neighbours(skeleton, path.getLast()).size() == 1;
+        if (deadEnd && path.size() <= SPUR_MAX_CELLS) return false;
+
+        List<PositionalData> polyline = new ArrayList<>(path.size());
+        for (long cell : path) {
+            polyline.add(new PositionalData(projection.lat(cellY(cell)), projection.lon(cellX(cell)), null));
+        }
+        List<PositionalData> simplified = trajectorySimplifier.simplify(polyline, cellMeters);
+
+        RoadNode prev = null;
+        for (int i = 0; i < simplified.size(); i++) {
+            PositionalData p = simplified.get(i);
+            RoadNode node;
+            if (i == 0 || i == simplified.size() - 1) {
+                long cell = i == 0 ? path.getFirst() : path.getLast();
+                node = keyNodes.computeIfAbsent(cell, c -> new RoadNode("raster_" + cellX(c) + "_" + cellY(c), p.getLat(), p.getLon()));
+            } else {
+                node = new RoadNode(p.getLat(), p.getLon());
+            }
+            roadGraph.addNode(node);
+            if (prev != null && !prev.equals(node)) {
+                roadGraph.addEdge(prev, node, GeoMath.distance(prev, node));
+            }
+            prev = node;
+        }
+        return true;
+    }
+
+    /**
+     * 8-connected neighbours on the skeleton. A diagonal neighbour is skipped when an orthogonal cell
+     * already connects both, so staircases do not turn into triangles and fake junctions.
+     */
+    private List<Long> neighbours(Set<Long> skeleton, long cell) {
+        int x = cellX(cell), y = cellY(cell);
+        List<Long> result = new ArrayList<>(4);
+        for (int i = 0; i < 8; i++) {
+            long n = key(x + DX[i], y + DY[i]);
+            if (!skeleton.contains(n)) continue;
+            boolean diagonal = DX[i] != 0 && DY[i] != 0;
+            if (diagonal && (skeleton.contains(key(x + DX[i], y)) || skeleton.contains(key(x, y + DY[i])))) continue;
+            result.add(n);
+        }
+        return result;
+    }
+
+    // ====== Grid helpers ======
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private static int cellX(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int cellY(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Local equirectangular projection in cell units, anchored at the first point.
+     */
+    private static final class Projection {
+        private final double originLat;
+        private final double originLon;
+        private final double cellMeters;
+        private final double metersPerDegreeLon;
+
+        Projection(PositionalData origin, double cellMeters) {
+            this.originLat = origin.getLat();
+            this.originLon = origin.getLon();
+            this.cellMeters = cellMeters;
+            this.metersPerDegreeLon = METERS_PER_DEGREE * Math.cos(Math.toRadians(originLat));
+        }
+
+        double x(double lon) {
+            return (lon - originLon) * metersPerDegreeLon / cellMeters;
+        }
+
+        double y(double lat) {
+            return (lat - originLat) * METERS_PER_DEGREE / cellMeters;
+        }
+
+        // Cell centers
+        double lon(int x) {
+            return originLon + (x + 0.5) * cellMeters / metersPerDegreeLon;
+        }
+
+        double lat(int y) {
+            return originLat + (y + 0.5) * cellMeters / METERS_PER_DEGREE;
+        }
+    }
+}
@@ -1,57 +1,90 @@
 package sk.master.backend.service.construct;
 
 import com.uber.h3core.H3Core;
-import lombok.Getter;
-import org.jgrapht.alg.connectivity.ConnectivityInspector;
-import org.jgrapht.alg.scoring.ClusteringCoefficient;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import sk.master.backend.persistence.dto.ApproximateGraphMetricsDto;
+import sk.master.backend.persistence.dto.BetweennessDto;
 import sk.master.backend.persistence.dto.GraphDto;
 import sk.master.backend.persistence.dto.GraphMetricsDto;
 import sk.master.backend.persistence.dto.GraphSummaryDto;
 import sk.master.backend.persistence.dto.PlacementResponseDto;
 import sk.master.backend.persistence.dto.SavedGraphDto;
+import sk.master.backend.persistence.model.GeoMath;
 import sk.master.backend.persistence.model.PipelineConfig;
 import sk.master.backend.persistence.entity.GraphEdgeEntity;
 import sk.master.backend.persistence.entity.GraphEntity;
 import sk.master.backend.persistence.entity.GraphMetricsEmbeddable;
 import sk.master.backend.persistence.entity.GraphNodeEntity;
 import sk.master.backend.persistence.entity.GraphStationEntity;
+import sk.master.backend.persistence.model.ConstructionEngine;
+import sk.master.backend.persistence.model.MatchedSegment;
 import sk.master.backend.persistence.model.PositionalData;
 import sk.master.backend.persistence.model.RoadEdge;
 import sk.master.backend.persistence.model.RoadGraph;
 import sk.master.backend.persistence.model.RoadNode;
+import sk.master.backend.persistence.model.TrajectoryBatch;
+import sk.master.backend.persistence.model.TrajectoryInsertionMode;
 import sk.master.backend.persistence.repository.GraphRepository;
+import sk.master.backend.service.metrics.GraphMetricsCalculator;
 import sk.master.backend.service.util.PipelineConfigService;
+import sk.master.backend.service.util.PipelineMetrics;
 
 import java.io.IOException;
-import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class GpsGraphConstructionService implements GraphConstructionService {
     private static final Logger log = LoggerFactory.getLogger(GpsGraphConstructionService.class);
-    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
-    private static final int LARGE_GRAPH_NODE_THRESHOLD = 10_000;
-    private static final int APPROXIMATE_NODES_COUNT = 50;
+    private static final double THINNING_TURN_ANGLE_DEGREES = 30.0;
+    private static final double MAX_METRICS_RELATIVE_ERROR = 1.0;
+    private static final long MIN_METRICS_BUDGET_MS = 100;
+    private static final long MAX_METRICS_BUDGET_MS = 600_000;
+    private static final int MAX_BETWEENNESS_TOP_N = 1000;
 
     private final PipelineConfigService configService;
     private final MapMatchingService mapMatchingService;
     private final OsmCityGraphService osmCityGraphService;
+    private final TrajectorySimplifier trajectorySimplifier;
+    private final DensityRasterGraphBuilder densityRasterGraphBuilder;
     private final H3Core h3;
     private final GraphRepository graphRepository;
-    @Getter
-    private RoadGraph roadGraph;
+    private final ForkJoinPool preprocessingPool;
+    private final boolean parallelPreprocessing;
+    private final int slowestTripsLogged;
+    private final GraphWorkspaceRegistry workspaceRegistry;
+    private final PipelineMetrics pipelineMetrics;
+    private final GraphMetricsCalculator graphMetricsCalculator;
 
     public GpsGraphConstructionService(GraphRepository graphRepository, PipelineConfigService configService,
-                                       MapMatchingService mapMatchingService, OsmCityGraphService osmCityGraphService) {
+                                       MapMatchingService mapMatchingService, OsmCityGraphService osmCityGraphService,
+                                       TrajectorySimplifier trajectorySimplifier, DensityRasterGraphBuilder densityRasterGraphBuilder,
+                                       GraphWorkspaceRegistry workspaceRegistry,
+                                       PipelineMetrics pipelineMetrics, GraphMetricsCalculator graphMetricsCalculator,
+                                       @Value("${pipeline.preprocessing.parallel:true}") boolean parallelPreprocessing,
+                                       @Value("${pipeline.preprocessing.parallelism:0}") int preprocessingParallelism,
+                                       @Value("${pipeline.preprocessing.slowest-trips-logged:5}") int slowestTripsLogged) {
         this.graphRepository = graphRepository;
         this.configService = configService;
         this.mapMatchingService = mapMatchingService;
         this.osmCityGraphService = osmCityGraphService;
+        this.trajectorySimplifier = trajectorySimplifier;
+        this.densityRasterGraphBuilder = densityRasterGraphBuilder;
+        this.workspaceRegistry = workspaceRegistry;
+        this.pipelineMetrics = pipelineMetrics;
+        this.graphMetricsCalculator = graphMetricsCalculator;
+        this.parallelPreprocessing = parallelPreprocessing;
+        this.slowestTripsLogged = slowestTripsLogged;
+        // 0 = one worker per available core
+        this.preprocessingPool = new ForkJoinPool(preprocessingParallelism > 0
+                ? preprocessingParallelism : Runtime.getRuntime().availableProcessors());
         try {
             this.h3 = H3Core.newInstance();
         } catch (IOException e) {
@@ -59,175 +92,431 @@ public class GpsGraphConstructionService implements GraphConstructionService {
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        preprocessingPool.shutdownNow();
+    }
+
     @Override
-    public RoadGraph generateRoadNetwork(GraphDto existingGraph, List<PositionalData> positionalData) {
-        if (positionalData == null || positionalData.isEmpty()) {
+    public RoadGraph generateRoadNetwork(Long userId, GraphDto existingGraph, TrajectoryBatch batch) {
+        if (batch == null || batch.isEmpty()) {
             log.warn("Empty position list — returning existing graph or new empty one.");
             return new RoadGraph();
         }
 
         PipelineConfig config = configService.getActivePipelineConfig();
-        log.info("=== Pipeline start: {} input points ===", positionalData.size());
-
-        roadGraph = new RoadGraph();
+        log.info("=== Pipeline start: {} input points ===", batch.size());
 
         // Step 1: Preprocessing & Split into Trips
         // Utilizes the tripId from FileServiceImpl
-        List<List<PositionalData>> trips = preprocessAndSplitIntoTrips(positionalData, config);
+        List<List<PositionalData>> trips = pipelineMetrics.timeStage(PipelineMetrics.STAGE_PREPROCESS,
+                () -> preprocessAndSplitIntoTrips(batch, config));
+        pipelineMetrics.recordPointsOut(trips.stream().mapToLong(List::size).sum());
         log.info("Step 1 (preprocessing): Split into {} valid continuous trips", trips.size());
 
-        // Step 2 & 3: Map Matching & Trajectory Insertion
+        if (config.getConstructionEngine() == ConstructionEngine.DENSITY_RASTER) {
+            // Step 2 (alternative): density rasterization and thinning, no map matching
+            RoadGraph rasterGraph = pipelineMetrics.timeStage(PipelineMetrics.STAGE_RASTER,
+                    () -> densityRasterGraphBuilder.build(trips, config));
+            log.info("Step 2 (density raster): Graph has {} nodes, {} edges",
+                    rasterGraph.getNodeCount(), rasterGraph.getEdgeCount());
+            return publish(userId, rasterGraph);
+        }
+
+        // Built locally and published to the user's workspace only when complete
+        RoadGraph roadGraph = new RoadGraph();
+
+        // Step 2 & 3: Map Matching, Simplification & Trajectory Insertion
         int processedTrips = 0;
+        int matchedPoints = 0;
+        int simplifiedAwayPoints = 0;
+        int offRoadSegments = 0;
+        boolean edgeMode = config.getInsertionMode() == TrajectoryInsertionMode.GRAPHHOPPER_EDGES;
+        // Snapping reuses nodes already in the graph, so overlapping trips converge during insertion
+        double snapTolerance = config.getInsertionMode() == TrajectoryInsertionMode.SNAP_TO_EXISTING
+                ? config.getSnapToleranceMeters() : 0.0;
+        int insertedPoints = 0;
+        Map<Integer, RoadNode> towerNodeCache = new HashMap<>();
+        long insertNanos = 0;
         for (List<PositionalData> trip : trips) {
 
-            List<PositionalData> matchedTrajectory = mapMatchingService.matchTrajectory(trip);
+            // Long trips are matched in overlapping windows; a failed window falls back
+            // to the raw GPS points (Off-road / Unmapped area) only for its own part of the trip
+            List<MatchedSegment> segments = pipelineMetrics.timeTripMatching(() -> mapMatchingService.matchTrajectory(trip));
+
+            long insertStart = System.nanoTime();
+            RoadNode prevNode = null;
+            for (MatchedSegment segment : segments) {
+                if (edgeMode && !segment.offRoad() && !segment.edgeIds().isEmpty()) {
+                    // Matched road edges are inserted with GraphHopper node ids — overlapping trips share nodes
+                    prevNode = insertMatchedEdges(roadGraph, segment, prevNode, towerNodeCache);
+                    continue;
+                }
 
-            boolean isOffRoad = false;
-            List<PositionalData> trajectoryToInsert;
+                List<PositionalData> trajectoryToInsert = segment.points();
+
+                if (segment.offRoad()) {
+                    offRoadSegments++;
+                    pipelineMetrics.recordOffRoadFallback();
+                } else {
+                    // Matched road geometry contains long runs of collinear points — drop them, keep junctions
+                    List<PositionalData> simplified = trajectorySimplifier.simplify(
+                            trajectoryToInsert, config.getSimplifyToleranceMeters());
+                    matchedPoints += trajectoryToInsert.size();
+                    simplifiedAwayPoints += trajectoryToInsert.size() - simplified.size();
+                    trajectoryToInsert = simplified;
+                }
 
-            if (matchedTrajectory != null && matchedTrajectory.size() >= 2) {
-                trajectoryToInsert = matchedTrajectory;
-            } else {
-                // Fallback: If map matching fails, use the raw GPS points (Off-road / Unmapped area)
-                isOffRoad = true;
-                trajectoryToInsert = trip;
+                // Insert strictly chronologically: P1 -> P2 -> P3, continuing from the previous segment
+                prevNode = insertTrajectoryIntoGraph(roadGraph, trajectoryToInsert, segment.offRoad(), prevNode, snapTolerance);
+                insertedPoints += trajectoryToInsert.size();
             }
-
-            // Insert strictly chronologically: P1 -> P2 -> P3
-            insertTrajectoryIntoGraph(trajectoryToInsert, isOffRoad);
+            insertNanos += System.nanoTime() - insertStart;
             processedTrips++;
         }
-        log.info("Step 2 & 3 (matching & insertion): Processed {} trips. Graph currently has {} nodes, {} edges",
-                processedTrips, roadGraph.getNodeCount(), roadGraph.getEdgeCount());
+        pipelineMetrics.recordStage(PipelineMetrics.STAGE_INSERT, insertNanos);
+        log.info("Step 2b (simplification): Removed {} of {} matched points (tolerance {} m)",
+                simplifiedAwayPoints, matchedPoints, config.getSimplifyToleranceMeters());
+        log.info("Step 2 & 3 (matching & insertion): Processed {} trips ({} off-road segments). Graph currently has {} nodes, {} edges",
+                processedTrips, offRoadSegments, roadGraph.getNodeCount(), roadGraph.getEdgeCount());
+        if (snapTolerance > 0) {
+            log.info("Step 3 (snapping): {} inserted points share {} nodes (tolerance {} m)",
+                    insertedPoints, roadGraph.getNodeCount(), snapTolerance);
+        }
 
         // Step 4: Spatial Merge & Deduplication via H3
-        // Collapses overlapping trajectories from different cars into single road segments
-        mergeOverlappingRoadSegments(config);
+        // Collapses overlapping trajectories from different cars into single road segments.
+        // Matched edges already share GraphHopper node ids, so in that mode only off-road points are merged.
+        pipelineMetrics.timeStage(PipelineMetrics.STAGE_MERGE,
+                () -> mergeOverlappingRoadSegments(roadGraph, config, edgeMode));
         log.info("Step 4 (merge & dedup): Graph optimized to {} nodes, {} edges",
                 roadGraph.getNodeCount(), roadGraph.getEdgeCount());
 
+        return publish(userId, roadGraph);
+    }
+
+    private RoadGraph publish(Long userId, RoadGraph roadGraph) {
+        pipelineMetrics.recordGraphSize(roadGraph);
+        workspaceRegistry.putGraph(userId, roadGraph);
         log.info("=== Pipeline completed ===");
         return roadGraph;
     }
 
     /**
      * Krok 1: Predspracovanie a rozdelenie dát do chronologických trajektórií (jázd).
+     * Runs over the columnar batch: a single index permutation ordered by trip and time,
+     * every trip is then filtered in place within its own range of that permutation.
+     * Trips are independent, so with parallel preprocessing enabled they are processed on the fork-join pool;
+     * the result keeps the trip order of the sequential run.
      */
-    private List<List<PositionalData>> preprocessAndSplitIntoTrips(List<PositionalData> positionalData, PipelineConfig config) {
-        // 1a) Globálna filtrácia (Coordinate validation)
-        List<PositionalData> validPoints = new ArrayList<>();
-        for (PositionalData p : positionalData) {
-            if (isValidCoordinate(p)) {
-                validPoints.add(p);
+    private List<List<PositionalData>> preprocessAndSplitIntoTrips(TrajectoryBatch batch, PipelineConfig config) {
+        // 1a) Zoskupenie do jázd podľa tripId (získané priamo zo súboru) a zotriedenie podľa času
+        int[] order = batch.sortedByTripAndTime();
+
+        List<Integer> startList = new ArrayList<>();
+        for (int i = 0; i < order.length; i++) {
+            if (i == 0 || batch.tripId(order[i]) != batch.tripId(order[i - 1])) startList.add(i);
+        }
+        int tripCount = startList.size();
+        int[] bounds = new int[tripCount + 1];
+        for (int t = 0; t < tripCount; t++) bounds[t] = startList.get(t);
+        bounds[tripCount] = order.length;
+
+        // 1b) Spracovanie každej jazdy samostatne — každá jazda pracuje len vo svojom úseku poľa order
+        TripPreprocessing[] results = new TripPreprocessing[tripCount];
+        long start = System.nanoTime();
+        boolean parallel = parallelPreprocessing && tripCount > 1;
+        if (parallel) {
+            preprocessingPool.submit(() -> IntStream.range(0, tripCount).parallel().forEach(t ->
+                    results[t] = preprocessTrip(batch, order, bounds[t], bounds[t + 1], config, new DuplicateFilter())
+            )).join();
+        } else {
+            DuplicateFilter duplicates = new DuplicateFilter();
+            for (int t = 0; t < tripCount; t++) {
+                results[t] = preprocessTrip(batch, order, bounds[t], bounds[t + 1], config, duplicates);
             }
         }
-
-        // 1b) Zoskupenie do jázd podľa tripId (získané priamo zo súboru)
-        Map<Integer, List<PositionalData>> tripsMap = validPoints.stream()
-                .collect(Collectors.groupingBy(PositionalData::getTripId));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
 
         List<List<PositionalData>> processedTrips = new ArrayList<>();
+        int thinnedTotal = 0;
+        int thinnedInput = 0;
+        for (TripPreprocessing result : results) {
+            thinnedInput += result.filteredCount();
+            thinnedTotal += result.thinnedCount();
+            // Ak po vyčistení zostal zmysluplný počet bodov pre trajektóriu
+            if (result.points() != null) processedTrips.add(result.points());
+        }
 
-        // 1c) Spracovanie každej jazdy samostatne
-        for (Map.Entry<Integer, List<PositionalData>> entry : tripsMap.entrySet()) {
-            List<PositionalData> trip = entry.getValue();
+        log.info("Step 1 (thinning): Dropped {} of {} observations before map matching (min distance {} m, min interval {} s)",
+                thinnedTotal, thinnedInput, config.getThinningMinDistanceMeters(), config.getThinningMinIntervalSeconds());
+        log.info("Step 1 (preprocessing): {} trips in {} ms ({}, parallelism {})",
+                tripCount, elapsedMs, parallel ? "parallel" : "sequential", parallel ? preprocessingPool.getParallelism() : 1);
+        logSlowestTrips(results);
 
-            // Zotriedenie podľa času
-            trip.sort(Comparator.comparing(
-                    PositionalData::getTimestamp,
-                    Comparator.nullsLast(Comparator.naturalOrder())
-            ));
+        return processedTrips;
+    }
 
-            // Odstránenie impossible speed jumps v rámci tripu
-            trip = removeSpeedOutliersFromTrip(trip, config);
+    /**
+     * Result of preprocessing one trip. {@code points} is null when fewer than two points survived.
+     */
+    private record TripPreprocessing(int tripId, List<PositionalData> points, int inputCount,
+                                     int filteredCount, int thinnedCount, long nanos) {
+    }
 
-            // Exact duplicate removal
-            trip = new ArrayList<>(new LinkedHashSet<>(trip));
+    private TripPreprocessing preprocessTrip(TrajectoryBatch batch, int[] order, int from, int to,
+                                             PipelineConfig config, DuplicateFilter duplicates) {
+        long start = System.nanoTime();
+        int tripId = batch.tripId(order[from]);
 
-            // Ak po vyčistení zostal zmysluplný počet bodov pre trajektóriu
-            if (trip.size() >= 2) {
-                processedTrips.add(trip);
+        // Coordinate validation, impossible speed jumps and exact duplicates in one pass
+        int filteredEnd = filterTrip(batch, order, from, to, config, duplicates);
+
+        // Rozriedenie hustých záznamov pred HMM map matchingom
+        int thinnedEnd = thinTrip(batch, order, from, filteredEnd, config);
+        int thinned = filteredEnd - thinnedEnd;
+        if (thinned > 0) {
+            log.debug("Trip {}: thinning dropped {} of {} observations", tripId, thinned, filteredEnd - from);
+        }
+
+        List<PositionalData> trip = null;
+        if (thinnedEnd - from >= 2) {
+            trip = new ArrayList<>(thinnedEnd - from);
+            for (int k = from; k < thinnedEnd; k++) {
+                trip.add(batch.toPositionalData(order[k]));
             }
         }
+        return new TripPreprocessing(tripId, trip, to - from, filteredEnd - from, thinned, System.nanoTime() - start);
+    }
 
-        return processedTrips;
+    private void logSlowestTrips(TripPreprocessing[] results) {
+        if (slowestTripsLogged <= 0 || results.length == 0) return;
+        Arrays.stream(results)
+                .sorted(Comparator.comparingLong(TripPreprocessing::nanos).reversed())
+                .limit(slowestTripsLogged)
+                .forEach(r -> log.info("Step 1 (preprocessing): slow trip {} — {} points, {} kept, {} ms",
+                        r.tripId(), r.inputCount(), r.points() != null ? r.points().size() : 0,
+                        Math.round(r.nanos() / 10_000.0) / 100.0));
     }
 
     /**
-     * Removes points that imply unrealistic speed relative to the previous point.
-     * Assumes the input list is a single, chronologically sorted trip.
+     * Single pass over one chronologically sorted trip {@code order[from, to)}. Drops invalid coordinates,
+     * points implying an unrealistic speed relative to the previous valid point and exact duplicates
+     * (same coordinates and timestamp). Survivors are compacted in place; returns the new end of the range.
      */
-    private List<PositionalData> removeSpeedOutliersFromTrip(List<PositionalData> trip, PipelineConfig config) {
-        double maxSpeedKmh = config.getMaxSpeedKmh();
-        double maxSpeedMs = maxSpeedKmh / 3.6;
-
-        List<PositionalData> result = new ArrayList<>();
-        PositionalData prev = null;
+    private int filterTrip(TrajectoryBatch batch, int[] order, int from, int to, PipelineConfig config,
+                           DuplicateFilter duplicates) {
+        double maxSpeedMs = config.getMaxSpeedKmh() / 3.6;
+        int write = from;
+        int prev = -1; // last valid timed point
+        long runTimestamp = TrajectoryBatch.NO_TIMESTAMP;
+        duplicates.clear();
+
+        for (int read = from; read < to; read++) {
+            int i = order[read];
+            if (!isValidCoordinate(batch.lat(i), batch.lon(i))) continue;
+
+            long timestamp = batch.epochMillis(i);
+            if (batch.hasTimestamp(i)) {
+                if (prev == -1) {
+                    prev = i;
+                } else {
+                    long seconds = Math.floorDiv(timestamp - batch.epochMillis(prev), 1000L);
+                    // Identical timestamps -> keep, but don't compute speed
+                    if (seconds > 0) {
+                        double dist = GeoMath.distance(batch.lat(prev), batch.lon(prev), batch.lat(i), batch.lon(i));
+                        if (dist / seconds > maxSpeedMs) continue;
+                        prev = i; // Only update prev if point is valid
+                    }
+                }
+            }
 
-        for (PositionalData p : trip) {
-            if (prev == null || p.getTimestamp() == null || prev.getTimestamp() == null) {
-                result.add(p);
-                if (p.getTimestamp() != null) prev = p;
-                continue;
+            // Duplicates share the timestamp, so after sorting they fall into the same run of equal timestamps
+            if (write == from || timestamp != runTimestamp) {
+                duplicates.clear();
+                runTimestamp = timestamp;
             }
+            if (!duplicates.add(batch, i)) continue;
+
+            order[write++] = i;
+        }
+        return write;
+    }
+
+    /**
+     * Drops observations closer than the configured distance or time step to the last kept one.
+     * The first and last point and turning points (heading change above the threshold) are always kept.
+     * Works in place on a chronologically sorted trip {@code order[from, to)}; returns the new end of the range.
+     */
+    private int thinTrip(TrajectoryBatch batch, int[] order, int from, int to, PipelineConfig config) {
+        double minDistance = config.getThinningMinDistanceMeters();
+        double minIntervalMs = config.getThinningMinIntervalSeconds() * 1000.0;
+        if ((minDistance <= 0 && minIntervalMs <= 0) || to - from <= 2) return to;
 
-            long seconds = Duration.between(prev.getTimestamp(), p.getTimestamp()).getSeconds();
+        int write = from + 1;
+        int lastKept = order[from];
 
-            // Identical timestamps -> keep, but don't compute speed
-            if (seconds <= 0) {
-                result.add(p);
+        for (int read = from + 1; read < to - 1; read++) {
+            int i = order[read];
+
+            boolean tooClose = minDistance > 0
+                    && GeoMath.distance(batch.lat(lastKept), batch.lon(lastKept), batch.lat(i), batch.lon(i)) < minDistance;
+            boolean tooSoon = minIntervalMs > 0 && batch.hasTimestamp(i) && batch.hasTimestamp(lastKept)
+                    && batch.epochMillis(i) - batch.epochMillis(lastKept) < minIntervalMs;
+
+            if ((tooClose || tooSoon) && !isTurningPoint(batch, lastKept, i, order[read + 1])) {
                 continue;
             }
+            order[write++] = i;
+            lastKept = i;
+        }
 
-            double dist = haversineDistance(prev.getLat(), prev.getLon(), p.getLat(), p.getLon());
-            double speedMs = dist / seconds;
+        order[write++] = order[to - 1];
+        return write;
+    }
 
-            if (speedMs <= maxSpeedMs) {
-                result.add(p);
-                prev = p; // Only update prev if point is valid
+    /**
+     * True if the heading changes at point {@code p} by more than {@link #THINNING_TURN_ANGLE_DEGREES}.
+     */
+    private boolean isTurningPoint(TrajectoryBatch batch, int prev, int p, int next) {
+        double cosLat = Math.cos(Math.toRadians(batch.lat(p)));
+        double ax = (batch.lon(p) - batch.lon(prev)) * cosLat, ay = batch.lat(p) - batch.lat(prev);
+        double bx = (batch.lon(next) - batch.lon(p)) * cosLat, by = batch.lat(next) - batch.lat(p);
+        double lenA = Math.hypot(ax, ay), lenB = Math.hypot(bx, by);
+        if (lenA == 0 || lenB == 0) return false;
+        double cosAngle = (ax * bx + ay * by) / (lenA * lenB);
+        return cosAngle < Math.cos(Math.toRadians(THINNING_TURN_ANGLE_DEGREES));
+    }
+
+    /**
+     * Open-addressing set of batch indices keyed by coordinates, reused across runs of equal timestamps.
+     * Clearing only resets the slots used by the current run.
+     */
+    private static final class DuplicateFilter {
+        private int[] slots = new int[64]; // batch index + 1, 0 = empty
+        private int[] used = new int[32];
+        private int usedCount;
+
+        boolean add(TrajectoryBatch batch, int index) {
+            if (usedCount * 2 >= slots.length) grow(batch);
+            int mask = slots.length - 1;
+            int slot = hash(batch.lat(index), batch.lon(index)) & mask;
+            while (slots[slot] != 0) {
+                int other = slots[slot] - 1;
+                if (batch.lat(other) == batch.lat(index) && batch.lon(other) == batch.lon(index)) return false;
+                slot = (slot + 1) & mask;
             }
+            slots[slot] = index + 1;
+            if (usedCount == used.length) used = Arrays.copyOf(used, used.length * 2);
+            used[usedCount++] = slot;
+            return true;
+        }
+
+        void clear() {
+            for (int i = 0; i < usedCount; i++) slots[used[i]] = 0;
+            usedCount = 0;
+        }
+
+        private void grow(TrajectoryBatch batch) {
+            int[] indices = new int[usedCount];
+            for (int i = 0; i < usedCount; i++) indices[i] = slots[used[i]] - 1;
+            slots = new int[slots.length * 2];
+            usedCount = 0;
+            for (int index : indices) add(batch, index);
+        }
+
+        private static int hash(double lat, double lon) {
+            long h = Double.doubleToLongBits(lat) * 31 + Double.doubleToLongBits(lon);
+            h ^= (h >>> 33);
+            h *= 0xff51afd7ed558ccdL;
+            return (int) (h ^ (h >>> 33));
         }
-        return result;
     }
 
     /**
      * Inserts a sequential list of points (a trajectory) into the graph chronologically.
+     * The first point is connected to {@code prevNode} if given. Returns the last inserted node.
+     * With a positive {@code snapToleranceMeters} a point within the tolerance of an existing node
+     * reuses that node instead of creating a new one.
      */
-    private void insertTrajectoryIntoGraph(List<PositionalData> trajectory, boolean isOffRoad) {
-        RoadNode prevNode = null;
+    private RoadNode insertTrajectoryIntoGraph(RoadGraph roadGraph, List<PositionalData> trajectory, boolean isOffRoad,
+                                               RoadNode prevNode, double snapToleranceMeters) {
 
         for (PositionalData p : trajectory) {
-            RoadNode currentNode = new RoadNode(p.getLat(), p.getLon());
-            currentNode.setOffRoad(isOffRoad);
+            RoadNode currentNode = snapToleranceMeters > 0
+                    ? roadGraph.findNearest(p.getLat(), p.getLon(), snapToleranceMeters).orElse(null)
+                    : null;
+            if (currentNode != null) {
+                // A matched point turns a snapped off-road node into a road node
+                currentNode.setOffRoad(currentNode.isOffRoad() && isOffRoad);
+            } else {
+                currentNode = new RoadNode(p.getLat(), p.getLon());
+                currentNode.setOffRoad(isOffRoad);
+                roadGraph.addNode(currentNode);
+            }
 
             if (p.getTimestamp() != null) {
                 currentNode.updateTimestampRange(p.getTimestamp());
             }
 
-            roadGraph.addNode(currentNode);
-
-            if (prevNode != null) {
-                double distance = haversineDistance(
-                        prevNode.getLat(), prevNode.getLon(),
-                        currentNode.getLat(), currentNode.getLon()
-                );
+            if (prevNode != null && !prevNode.equals(currentNode)) {
+                double distance = GeoMath.distance(prevNode, currentNode);
                 roadGraph.addEdge(prevNode, currentNode, distance);
             }
 
             prevNode = currentNode;
         }
+        return prevNode;
+    }
+
+    /**
+     * Inserts the GraphHopper edges of a matched segment using the tower/pillar node id scheme
+     * of the city import. A preceding off-road piece is connected to the closest node of the first edge.
+     * Returns the node of the last edge closest to where the segment ends.
+     */
+    private RoadNode insertMatchedEdges(RoadGraph roadGraph, MatchedSegment segment, RoadNode prevNode, Map<Integer, RoadNode> towerNodeCache) {
+        List<RoadNode> firstChain = null;
+        List<RoadNode> lastChain = null;
+        for (int edgeId : segment.edgeIds()) {
+            List<RoadNode> chain = osmCityGraphService.addGraphHopperEdge(roadGraph, edgeId, towerNodeCache);
+            if (firstChain == null) firstChain = chain;
+            lastChain = chain;
+        }
+
+        if (prevNode != null) {
+            RoadNode entry = nearestNode(firstChain, segment.points().getFirst());
+            if (!entry.equals(prevNode)) {
+                roadGraph.addEdge(prevNode, entry, GeoMath.distance(prevNode, entry));
+            }
+        }
+        return nearestNode(lastChain, segment.points().getLast());
+    }
+
+    private RoadNode nearestNode(List<RoadNode> nodes, PositionalData p) {
+        RoadNode best = nodes.getFirst();
+        double bestDist = Double.MAX_VALUE;
+        for (RoadNode node : nodes) {
+            double d = GeoMath.distance(node.getLat(), node.getLon(), p.getLat(), p.getLon());
+            if (d < bestDist) {
+                bestDist = d;
+                best = node;
+            }
+        }
+        return best;
     }
 
     /**
      * Collapses parallel and overlapping trajectories from different trips
      * into a single unified road network using H3 spatial clustering.
+     * With {@code offRoadOnly} only raw off-road nodes are clustered.
      */
-    private void mergeOverlappingRoadSegments(PipelineConfig config) {
+    private void mergeOverlappingRoadSegments(RoadGraph roadGraph, PipelineConfig config, boolean offRoadOnly) {
         int resolution = config.getH3DedupResolution();
 
         // Group all nodes by their H3 Hexagon ID
         Map<Long, List<RoadNode>> h3Grid = new HashMap<>();
         for (RoadNode node : roadGraph.getNodes()) {
+            if (offRoadOnly && !node.isOffRoad()) continue;
             long cellId = h3.latLngToCell(node.getLat(), node.getLon(), resolution);
             h3Grid.computeIfAbsent(cellId, _ -> new ArrayList<>()).add(node);
         }
@@ -260,10 +549,7 @@ public class GpsGraphConstructionService implements GraphConstructionService {
                         );
 
                         if (otherNode != null && !nodesInCell.contains(otherNode)) {
-                            double newDist = haversineDistance(
-                                    masterNode.getLat(), masterNode.getLon(),
-                                    otherNode.getLat(), otherNode.getLon()
-                            );
+                            double newDist = GeoMath.distance(masterNode, otherNode);
                             roadGraph.addEdge(masterNode, otherNode, newDist);
                         }
                     }
@@ -277,219 +563,53 @@ public class GpsGraphConstructionService implements GraphConstructionService {
     }
 
     @Override
-    public RoadGraph importCityGraph(String city) {
+    public RoadGraph importCityGraph(Long userId, String city) {
         PipelineConfig cityConfig = configService.getActivePipelineConfig();
-        roadGraph = osmCityGraphService.extractCityGraph(city, cityConfig.getCityCountry(), cityConfig.getRetainLargestComponentPercent(), cityConfig.getCityBoundaryBufferMeters());
+        RoadGraph roadGraph = osmCityGraphService.extractCityGraph(city, cityConfig.getCityCountry(), cityConfig.getRetainLargestComponentPercent(), cityConfig.getCityBoundaryBufferMeters());
+        workspaceRegistry.putGraph(userId, roadGraph);
         return roadGraph;
     }
 
     @Override
     public GraphMetricsDto computeMetrics(RoadGraph roadGraph) {
-        int nodeCount = roadGraph.getNodeCount();
-        int edgeCount = roadGraph.getEdgeCount();
-
-        log.info("Computing graph metrics: nodes={}, edges={}", nodeCount, edgeCount);
-
-        if (nodeCount == 0) {
-            return new GraphMetricsDto(0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
-        }
-
-        double avgDegree = 2.0 * edgeCount / nodeCount;
-
-        double avgEdgeLengthMeters = roadGraph.getEdges().stream()
-                .mapToDouble(RoadEdge::distanceMeters)
-                .average()
-                .orElse(0.0);
-
-        log.info("Average degree: {}, Average edge length: {} meters", avgDegree, avgEdgeLengthMeters);
-
-        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
-        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
-        for (var node : roadGraph.getNodes()) {
-            if (node.getLat() < minLat) minLat = node.getLat();
-            if (node.getLat() > maxLat) maxLat = node.getLat();
-            if (node.getLon() < minLon) minLon = node.getLon();
-            if (node.getLon() > maxLon) maxLon = node.getLon();
-        }
-        double centerLat = (minLat + maxLat) / 2.0;
-        double widthKm = haversineDistance(centerLat, minLon, centerLat, maxLon) / 1000.0;
-        double heightKm = haversineDistance(minLat, minLon, maxLat, minLon) / 1000.0;
-        double areaKm2 = widthKm * heightKm;
-        double nodeDensityPerKm2 = areaKm2 > 0 ? nodeCount / areaKm2 : 0.0;
-
-        log.info("Node density: {} nodes/km² (area: {} km²)", nodeDensityPerKm2, areaKm2);
-
-        var cc = new ClusteringCoefficient<>(roadGraph.getGraph());
-        double clusteringCoefficient = cc.getAverageClusteringCoefficient();
-
-        log.info("Average clustering coefficient: {}", clusteringCoefficient);
-
-        var graph = roadGraph.getGraph();
-        int connectedComponents = new ConnectivityInspector<>(graph).connectedSets().size();
-
-        log.info("Graph connectivity: {} component(s)", connectedComponents);
-
-        double diameter;
-        double radiusMeters;
-        int treewidth;
-
-        if (nodeCount > LARGE_GRAPH_NODE_THRESHOLD) {
-            log.warn("Large graph ({} nodes) — approximating diameter/radius with k-sweep; skipping treewidth", nodeCount);
-
-            record SweepResult(double eccentricity) {}
-            List<RoadNode> seeds = new ArrayList<>(roadGraph.getNodes());
-            Collections.shuffle(seeds);
-            seeds = seeds.subList(0, APPROXIMATE_NODES_COUNT);
-
-            List<SweepResult> results = seeds.parallelStream().map(source -> {
-                Map<RoadNode, Double> dist = new HashMap<>();
-                dist.put(source, 0.0);
-                PriorityQueue<RoadNode> pq = new PriorityQueue<>(Comparator.comparingDouble(n -> dist.getOrDefault(n, Double.MAX_VALUE)));
-                pq.add(source);
-                while (!pq.isEmpty()) {
-                    RoadNode u = pq.poll();
-                    double du = dist.get(u);
-                    for (RoadEdge edge : graph.edgesOf(u)) {
-                        RoadNode src = graph.getEdgeSource(edge);
-                        RoadNode v = src.equals(u) ? graph.getEdgeTarget(edge) : src;
-                        double dv = du + graph.getEdgeWeight(edge);
-                        if (dv < dist.getOrDefault(v, Double.MAX_VALUE)) {
-                            dist.put(v, dv);
-                            pq.add(v);
-                        }
-                    }
-                }
-                double ecc = dist.values().stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
-                return new SweepResult(ecc);
-            }).toList();
-
-            diameter = results.stream().mapToDouble(SweepResult::eccentricity).max().orElse(0.0);
-            radiusMeters = results.stream().mapToDouble(SweepResult::eccentricity)
-                    .filter(e -> e > 0).min().orElse(0.0);
-            treewidth = -1;
-
-        } else {
-            List<RoadNode> sources = new ArrayList<>(roadGraph.getNodes());
-            diameter = 0.0;
-            double radius = Double.MAX_VALUE;
-
-            for (RoadNode source : sources) {
-                Map<RoadNode, Double> dist = new HashMap<>();
-                dist.put(source, 0.0);
-                PriorityQueue<RoadNode> pq = new PriorityQueue<>(Comparator.comparingDouble(n -> dist.getOrDefault(n, Double.MAX_VALUE)));
-                pq.add(source);
-
-                while (!pq.isEmpty()) {
-                    RoadNode u = pq.poll();
-                    double du = dist.get(u);
-                    for (RoadEdge edge : graph.edgesOf(u)) {
-                        RoadNode src = graph.getEdgeSource(edge);
-                        RoadNode v = src.equals(u) ? graph.getEdgeTarget(edge) : src;
-                        double dv = du + graph.getEdgeWeight(edge);
-                        if (dv < dist.getOrDefault(v, Double.MAX_VALUE)) {
-                            dist.put(v, dv);
-                            pq.add(v);
-                        }
-                    }
-                }
-
-                double eccentricity = 0.0;
-                for (Map.Entry<RoadNode, Double> entry : dist.entrySet()) {
-                    if (!entry.getKey().equals(source)) {
-                        double d = entry.getValue();
-                        if (d > diameter) diameter = d;
-                        if (d > eccentricity) eccentricity = d;
-                    }
-                }
-                if (eccentricity > 0 && eccentricity < radius) radius = eccentricity;
-            }
-
-            radiusMeters = radius == Double.MAX_VALUE ? 0.0 : radius;
-
-            treewidth = computeTreewidth(roadGraph);
-        }
-
-        log.info("Diameter: {} meters, Radius: {} meters", diameter, radiusMeters);
-        log.info("Treewidth: {}", treewidth);
-
-        return new GraphMetricsDto(
-                nodeCount,
-                edgeCount,
-                avgDegree,
-                diameter,
-                clusteringCoefficient,
-                avgEdgeLengthMeters,
-                nodeDensityPerKm2,
-                connectedComponents,
-                radiusMeters,
-                treewidth
-        );
+        return graphMetricsCalculator.compute(roadGraph);
     }
 
-    @SuppressWarnings("unchecked")
-    private int computeTreewidth(RoadGraph roadGraph) {
-        List<RoadNode> nodes = new ArrayList<>(roadGraph.getNodes());
-        int n = nodes.size();
-        if (n == 0) return 0;
-
-        Map<RoadNode, Integer> idx = new HashMap<>();
-        for (int i = 0; i < n; i++) idx.put(nodes.get(i), i);
-
-        Set<Integer>[] adj = new Set[n];
-        for (int i = 0; i < n; i++) adj[i] = new HashSet<>();
-        var graph = roadGraph.getGraph();
-        for (RoadEdge e : roadGraph.getEdges()) {
-            int u = idx.get(graph.getEdgeSource(e));
-            int v = idx.get(graph.getEdgeTarget(e));
-            if (u != v) { adj[u].add(v); adj[v].add(u); }
-        }
-
-        boolean[] eliminated = new boolean[n];
-        int treewidth = 0;
-        for (int step = 0; step < n; step++) {
-            int minDeg = Integer.MAX_VALUE, minV = -1;
-            for (int i = 0; i < n; i++) {
-                if (!eliminated[i] && adj[i].size() < minDeg) {
-                    minDeg = adj[i].size();
-                    minV = i;
-                }
-            }
-            treewidth = Math.max(treewidth, minDeg);
-            List<Integer> nbrs = new ArrayList<>(adj[minV]);
-            for (int i = 0; i < nbrs.size(); i++) {
-                for (int j = i + 1; j < nbrs.size(); j++) {
-                    adj[nbrs.get(i)].add(nbrs.get(j));
-                    adj[nbrs.get(j)].add(nbrs.get(i));
-                }
-            }
-            for (int nb : nbrs) adj[nb].remove(minV);
-            adj[minV].clear();
-            eliminated[minV] = true;
+    private boolean isValidCoordinate(double lat, double lon) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            return false;
         }
-        return treewidth;
+        return !(Math.abs(lat) < 0.001 && Math.abs(lon) < 0.001);
     }
 
-    private boolean isValidCoordinate(PositionalData p) {
-        if (p.getLat() < -90 || p.getLat() > 90 || p.getLon() < -180 || p.getLon() > 180) {
-            return false;
-        }
-        return !(Math.abs(p.getLat()) < 0.001 && Math.abs(p.getLon()) < 0.001);
+    @Override
+    public GraphMetricsDto computeCurrentGraphMetrics(Long userId) {
+        return workspaceRegistry.getMetrics(userId, this::computeMetrics).orElse(null);
     }
 
-    private double haversineDistance(double lat1, double lon1, double lat2, double lon2) {
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return EARTH_RADIUS_METERS * c;
+    @Override
+    public ApproximateGraphMetricsDto computeApproximateGraphMetrics(Long userId, Double relativeError, Long timeBudgetMs) {
+        double error = relativeError != null
+                ? Math.clamp(relativeError, 0.0, MAX_METRICS_RELATIVE_ERROR)
+                : graphMetricsCalculator.getDefaultRelativeError();
+        long budget = timeBudgetMs != null
+                ? Math.clamp(timeBudgetMs, MIN_METRICS_BUDGET_MS, MAX_METRICS_BUDGET_MS)
+                : graphMetricsCalculator.getDefaultBudgetMillis();
+        return workspaceRegistry.getGraph(userId)
+                .map(graph -> graphMetricsCalculator.approximate(graph, error, budget))
+                .orElse(null);
     }
 
     @Override
-    public GraphMetricsDto computeCurrentGraphMetrics() {
-        if (roadGraph == null) return null;
-        return computeMetrics(roadGraph);
+    public BetweennessDto computeBetweenness(Long userId, Integer samples, Integer topN) {
+        // Sample size is capped by the node count in the engine
+        int sampleSize = samples != null ? Math.max(1, samples) : graphMetricsCalculator.getDefaultBetweennessSamples();
+        int limit = topN != null
+                ? Math.clamp(topN, 1, MAX_BETWEENNESS_TOP_N)
+                : graphMetricsCalculator.getDefaultBetweennessTopN();
+        return workspaceRegistry.getGraph(userId)
+                .map(graph -> graphMetricsCalculator.betweenness(graph, sampleSize, limit))
+                .orElse(null);
     }
 
     @Override
@@ -1,25 +1,31 @@
 package sk.master.backend.service.construct;
 
+import sk.master.backend.persistence.dto.ApproximateGraphMetricsDto;
+import sk.master.backend.persistence.dto.BetweennessDto;
 import sk.master.backend.persistence.dto.GraphDto;
 import sk.master.backend.persistence.dto.GraphMetricsDto;
 import sk.master.backend.persistence.dto.GraphSummaryDto;
 import sk.master.backend.persistence.dto.PlacementResponseDto;
 import sk.master.backend.persistence.dto.SavedGraphDto;
-import sk.master.backend.persistence.model.PositionalData;
 import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.TrajectoryBatch;
 
 import java.util.List;
 
 public interface GraphConstructionService {
     GraphSummaryDto saveGraphToDatabase(GraphDto graph, List<PlacementResponseDto.StationNodeDto> stations, String name, Long userId);
 
-    RoadGraph generateRoadNetwork(GraphDto graph, List<PositionalData> positionalData);
+    RoadGraph generateRoadNetwork(Long userId, GraphDto graph, TrajectoryBatch batch);
 
-    RoadGraph importCityGraph(String city);
+    RoadGraph importCityGraph(Long userId, String city);
 
     GraphMetricsDto computeMetrics(RoadGraph roadGraph);
 
-    GraphMetricsDto computeCurrentGraphMetrics();
+    GraphMetricsDto computeCurrentGraphMetrics(Long userId);
+
+    ApproximateGraphMetricsDto computeApproximateGraphMetrics(Long userId, Double relativeError, Long timeBudgetMs);
+
+    BetweennessDto computeBetweenness(Long userId, Integer samples, Integer topN);
 
     SavedGraphDto importGraphFromDatabase(Long graphId, Long userId);
 
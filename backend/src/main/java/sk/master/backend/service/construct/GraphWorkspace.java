@@ -0,0 +1,122 @@
+package sk.master.backend.service.construct;
+
+import sk.master.backend.persistence.dto.GraphMetricsDto;
+import sk.master.backend.persistence.model.RoadGraph;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Per-user working graph. The graph reference is replaced as a whole after an import finishes,
+ * so readers (metrics, placement) never see a half-built graph.
+ */
+public class GraphWorkspace {
+
+    private final Long userId;
+    private volatile RoadGraph graph;
+    private volatile long estimatedBytes;
+    private volatile long lastAccessMillis;
+    // Incremented by setGraph, so cached metrics name their graph without holding on to it
+    private long generation;
+    // Metrics of the graph at metricsGeneration and metricsVersion, possibly still running; guarded by this
+    private long metricsGeneration;
+    private long metricsVersion;
+    private CompletableFuture<GraphMetricsDto> metrics;
+
+    GraphWorkspace(Long userId) {
+        this.userId = userId;
+        touch();
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    synchronized void setGraph(RoadGraph graph, long estimatedBytes) {
+        this.graph = graph;
+        this.estimatedBytes = estimatedBytes;
+        generation++;
+        metrics = null;
+        touch();
+    }
+
+    /**
+     * Metrics of the current graph, computed again only if the graph was replaced or modified since.
+     * Concurrent callers wait for a running computation instead of starting their own; the computation
+     * itself runs outside the lock, so cached reads and graph replacement are never blocked by it.
+     */
+    GraphMetricsDto getMetrics(Function<RoadGraph, GraphMetricsDto> compute) {
+        RoadGraph current;
+        CompletableFuture<GraphMetricsDto> future;
+        boolean owner = false;
+        synchronized (this) {
+            current = graph;
+            if (current == null) return null;
+            // Version read before computing — a change during the computation invalidates the result
+            long version = current.getVersion();
+            if (metrics == null || metricsGeneration != generation || metricsVersion != version) {
+                metrics = new CompletableFuture<>();
+                metricsGeneration = generation;
+                metricsVersion = version;
+                owner = true;
+            }
+            future = metrics;
+        }
+        if (owner) {
+            try {
+                future.complete(compute.apply(current));
+            } catch (RuntimeException | Error e) {
+                synchronized (this) {
+                    if (metrics == future) metrics = null;
+                }
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return future.join();
+    }
+
+    /**
+     * Metrics of the current graph if they are computed and still valid, without computing them.
+     */
+    synchronized GraphMetricsDto getCachedMetrics() {
+        RoadGraph current = graph;
+        if (current == null || metrics == null || metricsGeneration != generation
+                || metricsVersion != current.getVersion() || !metrics.isDone() || metrics.isCompletedExceptionally()) {
+            return null;
+        }
+        return metrics.getNow(null);
+    }
+
+    /**
+     * Stores metrics computed outside the workspace for {@code metricsGraph} at {@code metricsVersion};
+     * ignored if the graph was replaced meanwhile. A computation running for the same version is
+     * completed with them.
+     */
+    synchronized void cacheMetrics(RoadGraph metricsGraph, long metricsVersion, GraphMetricsDto metrics) {
+        if (graph != metricsGraph) return;
+        if (this.metrics != null && metricsGeneration == generation && this.metricsVersion == metricsVersion) {
+            this.metrics.complete(metrics);
+            return;
+        }
+        this.metricsGeneration = generation;
+        this.metricsVersion = metricsVersion;
+        this.metrics = CompletableFuture.completedFuture(metrics);
+    }
+
+    void touch() {
+        this.lastAccessMillis = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,132 @@
+package sk.master.backend.service.construct;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sk.master.backend.persistence.dto.GraphMetricsDto;
+import sk.master.backend.persistence.model.RoadGraph;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Holds the current graph of every user, so imports, metrics and placement of different users
+ * never touch each other's graph. Workspaces idle longer than the timeout are dropped, and when the
+ * estimated size of all graphs exceeds the memory budget the least recently used ones are evicted.
+ */
+@Component
+public class GraphWorkspaceRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(GraphWorkspaceRegistry.class);
+
+    // Rough heap footprint: RoadNode + jgrapht vertex entry + node map + quadtree entry + component index
+    // (identity map entry, node ref, parent, size), RoadEdge + jgrapht edge entry
+    private static final long BYTES_PER_NODE = 460;
+    private static final long BYTES_PER_EDGE = 250;
+
+    private final Map<Long, GraphWorkspace> workspaces = new ConcurrentHashMap<>();
+    private final long memoryBudgetBytes;
+    private final long idleTimeoutMillis;
+
+    public GraphWorkspaceRegistry(MeterRegistry meterRegistry,
+                                  @Value("${pipeline.workspace.memory-budget-mb:1024}") long memoryBudgetMb,
+                                  @Value("${pipeline.workspace.idle-timeout-minutes:60}") long idleTimeoutMinutes) {
+        this.memoryBudgetBytes = memoryBudgetMb * 1024 * 1024;
+        this.idleTimeoutMillis = idleTimeoutMinutes * 60_000;
+        Gauge.builder("pipeline.workspaces", workspaces, Map::size)
+                .description("Graph workspaces held in memory")
+                .register(meterRegistry);
+        Gauge.builder("pipeline.workspaces.estimated.bytes", this, GraphWorkspaceRegistry::getTotalEstimatedBytes)
+                .description("Estimated heap size of all workspace graphs")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Current graph of the user, if the workspace still exists.
+     */
+    public Optional<RoadGraph> getGraph(Long userId) {
+        GraphWorkspace workspace = workspaces.get(userId);
+        if (workspace == null) return Optional.empty();
+        workspace.touch();
+        evict(userId);
+        return Optional.ofNullable(workspace.getGraph());
+    }
+
+    /**
+     * Metrics of the user's current graph, cached per graph version.
+     */
+    public Optional<GraphMetricsDto> getMetrics(Long userId, Function<RoadGraph, GraphMetricsDto> compute) {
+        GraphWorkspace workspace = workspaces.get(userId);
+        if (workspace == null) return Optional.empty();
+        workspace.touch();
+        evict(userId);
+        return Optional.ofNullable(workspace.getMetrics(compute));
+    }
+
+    public Optional<GraphMetricsDto> getCachedMetrics(Long userId) {
+        GraphWorkspace workspace = workspaces.get(userId);
+        return workspace == null ? Optional.empty() : Optional.ofNullable(workspace.getCachedMetrics());
+    }
+
+    /**
+     * Stores metrics computed outside the registry, e.g. by the streaming endpoint, for the given graph version.
+     */
+    public void cacheMetrics(Long userId, RoadGraph graph, long version, GraphMetricsDto metrics) {
+        GraphWorkspace workspace = workspaces.get(userId);
+        if (workspace != null) workspace.cacheMetrics(graph, version, metrics);
+    }
+
+    /**
+     * Replaces the user's current graph and evicts other workspaces if the budget is exceeded.
+     */
+    public void putGraph(Long userId, RoadGraph graph) {
+        workspaces.computeIfAbsent(userId, GraphWorkspace::new).setGraph(graph, estimateBytes(graph));
+        evict(userId);
+    }
+
+    public void remove(Long userId) {
+        workspaces.remove(userId);
+    }
+
+    public long getTotalEstimatedBytes() {
+        return workspaces.values().stream().mapToLong(GraphWorkspace::getEstimatedBytes).sum();
+    }
+
+    public static long estimateBytes(RoadGraph graph) {
+        return graph.getNodeCount() * BYTES_PER_NODE + graph.getEdgeCount() * BYTES_PER_EDGE;
+    }
+
+    private synchronized void evict(Long activeUserId) {
+        long now = System.currentTimeMillis();
+        workspaces.values().removeIf(w -> !w.getUserId().equals(activeUserId)
+                && now - w.getLastAccessMillis() > idleTimeoutMillis);
+
+        long total = getTotalEstimatedBytes();
+        if (total <= memoryBudgetBytes) return;
+
+        // Least recently used first; the workspace that was just written is never evicted
+        List<GraphWorkspace> candidates = new ArrayList<>(workspaces.values());
+        candidates.sort(Comparator.comparingLong(GraphWorkspace::getLastAccessMillis));
+        for (GraphWorkspace workspace : candidates) {
+            if (total <= memoryBudgetBytes) break;
+            if (workspace.getUserId().equals(activeUserId)) continue;
+            workspaces.remove(workspace.getUserId());
+            total -= workspace.getEstimatedBytes();
+            log.info("Evicted graph workspace of user {} (~{} MB) to stay within the memory budget",
+                    workspace.getUserId(), workspace.getEstimatedBytes() / (1024 * 1024));
+        }
+        if (total > memoryBudgetBytes) {
+            log.warn("Graph workspaces use ~{} MB, above the budget of {} MB",
+                    total / (1024 * 1024), memoryBudgetBytes / (1024 * 1024));
+        }
+    }
+}
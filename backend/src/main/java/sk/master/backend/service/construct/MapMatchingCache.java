@@ -0,0 +1,267 @@
+package sk.master.backend.service.construct;
+
+import com.graphhopper.GraphHopper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sk.master.backend.persistence.model.PositionalData;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bounded LRU cache of map-matching results keyed by a fingerprint of the quantized observation
+ * coordinates and the GraphHopper graph version. Entries evicted from memory are optionally spilled
+ * to a local directory, capped at {@code disk-max-files}, and promoted back on the next hit. Failed
+ * matches are cached in memory only and expire after {@code failure-ttl-ms}, so a route that cannot
+ * be matched is not sent through the HMM again right away, yet a transient failure does not stick.
+ */
+@Component
+public class MapMatchingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MapMatchingCache.class);
+    private static final double QUANTIZATION = 1e5; // ~1 m
+    private static final int STATS_LOG_INTERVAL = 500;
+    private static final String SPILL_SUFFIX = ".bin";
+    // Part of every fingerprint, so results cached in an older layout are never read back
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Compact matching result. {@code lats == null} marks a window that failed to match.
+     * {@code observationPoints} and {@code observationEdges} hold, per observation of the window, the
+     * point and the {@code edgeIds} index it was snapped to, {@code -1} if the matcher dropped it.
+     */
+    public record CachedMatch(double[] lats, double[] lons, boolean[] junctions, int[] edgeIds,
+                              int[] observationPoints, int[] observationEdges) {
+        public static final CachedMatch FAILED = new CachedMatch(null, null, null, null, null, null);
+
+        public boolean failed() {
+            return lats == null;
+        }
+    }
+
+    private final String graphVersion;
+    private final int maxEntries;
+    private final Path diskDirectory;
+    private final int diskMaxFiles;
+    private final long failureTtlMillis;
+    // Both guarded by the entries lock; failures expire, successful matches only get evicted
+    private final LinkedHashMap<String, CachedMatch> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> failureExpiry = new HashMap<>();
+    private final AtomicInteger diskFiles = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public MapMatchingCache(GraphHopper hopper,
+                            @Value("${pipeline.matching.cache.max-entries:10000}") int maxEntries,
+                            @Value("${pipeline.matching.cache.disk-directory:}") String diskDirectory,
+                            @Value("${pipeline.matching.cache.disk-max-files:50000}") int diskMaxFiles,
+                            @Value("${pipeline.matching.cache.failure-ttl-ms:600000}") long failureTtlMillis) {
+        this.graphVersion = hopper.getProperties().get("datareader.import.date")
+                + "|" + hopper.getBaseGraph().getNodes() + "|" + hopper.getBaseGraph().getEdges();
+        this.maxEntries = maxEntries;
+        this.diskDirectory = diskDirectory == null || diskDirectory.isBlank() ? null : Path.of(diskDirectory);
+        this.diskMaxFiles = diskMaxFiles;
+        this.failureTtlMillis = failureTtlMillis;
+
+        if (this.diskDirectory != null) {
+            try {
+                Files.createDirectories(this.diskDirectory);
+                diskFiles.set(spillFiles().size());
+            } catch (IOException e) {
+                throw new IllegalStateException("Can't create map matching cache directory " + diskDirectory, e);
+            }
+            pruneDisk();
+        }
+        log.info("Map matching cache: maxEntries={}, disk={} (max {} files), graphVersion={}",
+                maxEntries, this.diskDirectory, diskMaxFiles, graphVersion);
+    }
+
+    /**
+     * SHA-256 over the format and graph version and the observation coordinates quantized to ~1 m.
+     */
+    public String fingerprint(List<PositionalData> observations) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((FORMAT_VERSION + "|" + graphVersion).getBytes(StandardCharsets.UTF_8));
+            byte[] buffer = new byte[16];
+            for (PositionalData p : observations) {
+                long lat = Math.round(p.getLat() * QUANTIZATION);
+                long lon = Math.round(p.getLon() * QUANTIZATION);
+                for (int i = 0; i < 8; i++) {
+                    buffer[i] = (byte) (lat >>> (8 * i));
+                    buffer[8 + i] = (byte) (lon >>> (8 * i));
+                }
+                digest.update(buffer);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Optional<CachedMatch> get(String key) {
+        CachedMatch match;
+        synchronized (entries) {
+            match = entries.get(key);
+            if (match != null && match.failed() && failureExpiry.getOrDefault(key, 0L) < System.currentTimeMillis()) {
+                entries.remove(key);
+                failureExpiry.remove(key);
+                match = null;
+            }
+        }
+        if (match == null && diskDirectory != null) {
+            match = readFromDisk(key);
+            if (match != null) {
+                diskHits.incrementAndGet();
+                put(key, match);
+            }
+        }
+
+        if (match != null) hits.incrementAndGet();
+        else misses.incrementAndGet();
+        if ((hits.get() + misses.get()) % STATS_LOG_INTERVAL == 0) {
+            logStatistics();
+        }
+        return Optional.ofNullable(match);
+    }
+
+    public void put(String key, CachedMatch match) {
+        Map.Entry<String, CachedMatch> evicted = null;
+        synchronized (entries) {
+            entries.put(key, match);
+            if (match.failed()) failureExpiry.put(key, System.currentTimeMillis() + failureTtlMillis);
+            if (entries.size() > maxEntries) {
+                Iterator<Map.Entry<String, CachedMatch>> eldest = entries.entrySet().iterator();
+                evicted = eldest.next();
+                eldest.remove();
+                failureExpiry.remove(evicted.getKey());
+            }
+        }
+        // Disk I/O outside the lock, matching threads only contend on the map itself
+        if (evicted != null && !evicted.getValue().failed()) spill(evicted.getKey(), evicted.getValue());
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    public void logStatistics() {
+        log.info("Map matching cache: {} hits ({} from disk), {} misses, hit rate {}%",
+                hits.get(), diskHits.get(), misses.get(), Math.round(getHitRate() * 1000) / 10.0);
+    }
+
+    // ====== Disk spill ======
+
+    private void spill(String key, CachedMatch match) {
+        if (diskDirectory == null) return;
+        Path file = diskDirectory.resolve(key + SPILL_SUFFIX);
+        boolean existed = Files.exists(file);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeBoolean(false);
+            out.writeInt(match.lats().length);
+            for (int i = 0; i < match.lats().length; i++) {
+                out.writeDouble(match.lats()[i]);
+                out.writeDouble(match.lons()[i]);
+                out.writeBoolean(match.junctions()[i]);
+            }
+            out.writeInt(match.edgeIds().length);
+            for (int edgeId : match.edgeIds()) out.writeInt(edgeId);
+            out.writeInt(match.observationPoints().length);
+            for (int i = 0; i < match.observationPoints().length; i++) {
+                out.writeInt(match.observationPoints()[i]);
+                out.writeInt(match.observationEdges()[i]);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to spill map matching result {} to disk: {}", key, e.getMessage());
+            return;
+        }
+        if (!existed && diskFiles.incrementAndGet() > diskMaxFiles) pruneDisk();
+    }
+
+    /**
+     * Deletes the least recently written spill files down to 90 % of {@code disk-max-files}.
+     */
+    private synchronized void pruneDisk() {
+        if (diskFiles.get() <= diskMaxFiles) return;
+        try {
+            List<Path> files = spillFiles();
+            files.sort(Comparator.comparingLong(MapMatchingCache::lastModified));
+            int excess = files.size() - diskMaxFiles * 9 / 10;
+            int deleted = 0;
+            for (int i = 0; i < excess; i++) {
+                if (Files.deleteIfExists(files.get(i))) deleted++;
+            }
+            diskFiles.set(files.size() - deleted);
+            log.info("Pruned {} map matching cache file(s) from {}", deleted, diskDirectory);
+        } catch (IOException e) {
+            log.warn("Failed to prune map matching cache directory {}: {}", diskDirectory, e.getMessage());
+        }
+    }
+
+    private List<Path> spillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(diskDirectory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(SPILL_SUFFIX))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private CachedMatch readFromDisk(String key) {
+        Path file = diskDirectory.resolve(key + SPILL_SUFFIX);
+        if (!Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            // Failures were spilled by earlier versions; they are retried now
+            if (in.readBoolean()) return null;
+            int n = in.readInt();
+            double[] lats = new double[n];
+            double[] lons = new double[n];
+            boolean[] junctions = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                lats[i] = in.readDouble();
+                lons[i] = in.readDouble();
+                junctions[i] = in.readBoolean();
+            }
+            int[] edgeIds = new int[in.readInt()];
+            for (int i = 0; i < edgeIds.length; i++) edgeIds[i] = in.readInt();
+            int observations = in.readInt();
+            int[] observationPoints = new int[observations];
+            int[] observationEdges = new int[observations];
+            for (int i = 0; i < observations; i++) {
+                observationPoints[i] = in.readInt();
+                observationEdges[i] = in.readInt();
+            }
+            return new CachedMatch(lats, lons, junctions, edgeIds, observationPoints, observationEdges);
+        } catch (IOException e) {
+            log.warn("Failed to read map matching result {} from disk: {}", key, e.getMessage());
+            return null;
+        }
+    }
+}
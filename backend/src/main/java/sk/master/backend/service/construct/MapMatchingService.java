@@ -1,9 +1,14 @@
 package sk.master.backend.service.construct;
 
+import sk.master.backend.persistence.model.MatchedSegment;
 import sk.master.backend.persistence.model.PositionalData;
 
 import java.util.List;
 
 public interface MapMatchingService {
-    List<PositionalData> matchTrajectory(List<PositionalData> trip);
+    /**
+     * Matches a chronologically sorted trip to the road network. Parts of the trip that cannot be matched
+     * are returned as off-road segments with the raw points, so the result always covers the whole trip.
+     */
+    List<MatchedSegment> matchTrajectory(List<PositionalData> trip);
 }
@@ -1,38 +1,320 @@
 package sk.master.backend.service.construct;
 
 import com.graphhopper.GraphHopper;
+import com.graphhopper.matching.EdgeMatch;
 import com.graphhopper.matching.MapMatching;
 import com.graphhopper.matching.MatchResult;
 import com.graphhopper.matching.Observation;
+import com.graphhopper.matching.State;
 
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.PointList;
 import com.graphhopper.util.shapes.GHPoint;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import sk.master.backend.persistence.model.MatchedSegment;
 import sk.master.backend.persistence.model.PositionalData;
+import sk.master.backend.service.util.PipelineMetrics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
 public class MapMatchingServiceGraphHopper implements MapMatchingService {
 
     private static final Logger log = LoggerFactory.getLogger(MapMatchingServiceGraphHopper.class);
+    private static final int PRECHECK_LOG_INTERVAL = 100;
+    // Snapped points are copied into the path geometry, so they match up to rounding
+    private static final double SNAP_EPSILON_DEGREES = 1e-9;
     private final GraphHopper hopper;
+    private final MapMatchingCache matchingCache;
+    private final int windowSize;
+    private final int windowOverlap;
+    private final ExecutorService windowExecutor;
+    private final PipelineMetrics pipelineMetrics;
+    private final SlowTripRecorder slowTripRecorder;
+    private final boolean precheckEnabled;
+    private final int precheckSamples;
+    private final double precheckMaxDistanceMeters;
+    private final double precheckOffRoadFraction;
+    private final AtomicLong precheckedTrips = new AtomicLong();
+    private final AtomicLong skippedTrips = new AtomicLong();
 
-    public MapMatchingServiceGraphHopper(GraphHopper hopper) {
-            this.hopper = hopper;
+    public MapMatchingServiceGraphHopper(GraphHopper hopper, MapMatchingCache matchingCache, PipelineMetrics pipelineMetrics,
+                                         SlowTripRecorder slowTripRecorder,
+                                         @Value("${pipeline.matching.window-size:400}") int windowSize,
+                                         @Value("${pipeline.matching.window-overlap:40}") int windowOverlap,
+                                         @Value("${pipeline.matching.parallelism:4}") int parallelism,
+                                         @Value("${pipeline.matching.offroad-precheck.enabled:true}") boolean precheckEnabled,
+                                         @Value("${pipeline.matching.offroad-precheck.samples:10}") int precheckSamples,
+                                         @Value("${pipeline.matching.offroad-precheck.max-distance-meters:100}") double precheckMaxDistanceMeters,
+                                         @Value("${pipeline.matching.offroad-precheck.offroad-fraction:0.8}") double precheckOffRoadFraction) {
+        if (windowOverlap < 0 || windowOverlap * 2 >= windowSize) {
+            throw new IllegalArgumentException("Window overlap must be non-negative and less than half of the window size");
+        }
+        this.hopper = hopper;
+        this.matchingCache = matchingCache;
+        this.pipelineMetrics = pipelineMetrics;
+        this.windowSize = windowSize;
+        this.windowOverlap = windowOverlap;
+        this.windowExecutor = Executors.newFixedThreadPool(parallelism);
+        this.slowTripRecorder = slowTripRecorder;
+        this.precheckEnabled = precheckEnabled;
+        this.precheckSamples = Math.max(1, precheckSamples);
+        this.precheckMaxDistanceMeters = precheckMaxDistanceMeters;
+        this.precheckOffRoadFraction = precheckOffRoadFraction;
+    }
+
+    @PreDestroy
+    public void close() {
+        windowExecutor.shutdownNow();
     }
 
     @Override
-    public List<PositionalData> matchTrajectory(List<PositionalData> trip) {
-        if (trip == null || trip.size() < 2) return null;
+    public List<MatchedSegment> matchTrajectory(List<PositionalData> trip) {
+        if (trip == null || trip.isEmpty()) return List.of();
+        long start = System.nanoTime();
+        List<MatchedSegment> segments = matchTrip(trip);
+        slowTripRecorder.record(trip, segments, System.nanoTime() - start);
+        return segments;
+    }
+
+    private List<MatchedSegment> matchTrip(List<PositionalData> trip) {
+        if (trip.size() < 2) return List.of(MatchedSegment.offRoad(trip));
+
+        // Trips far from every road would only fail in the HMM after paying its full cost
+        if (precheckEnabled && isClearlyOffRoad(trip)) {
+            return List.of(MatchedSegment.offRoad(trip));
+        }
+
+        // Short trips are matched as a single window
+        if (trip.size() <= windowSize) {
+            WindowMatch matched = matchWindow(trip);
+            if (matched == null) pipelineMetrics.recordMatchFailure();
+            return List.of(matched != null
+                    ? new MatchedSegment(matched.points(), matched.edgeIds(), false)
+                    : MatchedSegment.offRoad(trip));
+        }
+
+        // Long trips: overlapping windows matched in parallel, stitched in the middle of each overlap
+        List<int[]> windows = splitIntoWindows(trip.size());
+        List<WindowMatch> matchedWindows = matchWindowsInParallel(trip, windows);
+
+        List<MatchedSegment> segments = new ArrayList<>();
+        int failedWindows = 0;
+        for (int w = 0; w < windows.size(); w++) {
+            int start = windows.get(w)[0];
+            int end = windows.get(w)[1];
+            // Cut points: middle of the overlap with the previous/next window (observation indices)
+            int cutFrom = w == 0 ? start : start + windowOverlap / 2;
+            int cutTo = w == windows.size() - 1 ? end - 1 : windows.get(w + 1)[0] + windowOverlap / 2;
+
+            WindowMatch matched = matchedWindows.get(w);
+            if (matched == null) {
+                // Local fallback — only this window's raw points, the rest of the trip stays matched
+                failedWindows++;
+                pipelineMetrics.recordMatchFailure();
+                appendSegment(segments, trip.subList(cutFrom, w == windows.size() - 1 ? end : cutTo), List.of(), true);
+                continue;
+            }
+
+            // Cut where this window snapped the cut observations; a matched previous window already ends on the first
+            List<PositionalData> points = matched.points();
+            List<Integer> edgeIds = matched.edgeIds();
+            int from = 0, edgeFrom = 0;
+            if (w > 0) {
+                int anchor = matched.anchor(cutFrom - start);
+                from = anchor < 0 ? points.size()
+                        : matched.observationPoints()[anchor] + (matchedWindows.get(w - 1) != null ? 1 : 0);
+                edgeFrom = anchor < 0 ? edgeIds.size() : Math.max(0, matched.observationEdges()[anchor]);
+            }
+            int to = points.size() - 1, edgeTo = edgeIds.size() - 1;
+            if (w < windows.size() - 1) {
+                int anchor = matched.anchor(cutTo - start);
+                if (anchor >= 0) {
+                    to = matched.observationPoints()[anchor];
+                    if (matched.observationEdges()[anchor] >= 0) edgeTo = matched.observationEdges()[anchor];
+                }
+            }
+            // The edge holding a cut observation is reported by both windows — inserting it twice is a no-op
+            appendSegment(segments, from <= to ? points.subList(from, to + 1) : List.of(),
+                    edgeFrom <= edgeTo ? edgeIds.subList(edgeFrom, edgeTo + 1) : List.of(), false);
+        }
+
+        log.debug("Trip {} matched in {} windows ({} fell back to raw points)",
+                trip.getFirst().getTripId(), windows.size(), failedWindows);
+        return segments;
+    }
+
+    /**
+     * Samples up to {@code precheckSamples} evenly spaced observations against the GraphHopper location index.
+     * The trip is clearly off-road if at least {@code precheckOffRoadFraction} of the samples have no road
+     * within {@code precheckMaxDistanceMeters}.
+     */
+    private boolean isClearlyOffRoad(List<PositionalData> trip) {
+        LocationIndex locationIndex = hopper.getLocationIndex();
+        int samples = Math.min(precheckSamples, trip.size());
+        int offRoad = 0;
+        for (int s = 0; s < samples; s++) {
+            PositionalData p = trip.get(samples == 1 ? 0 : (int) ((long) s * (trip.size() - 1) / (samples - 1)));
+            Snap snap = locationIndex.findClosest(p.getLat(), p.getLon(), EdgeFilter.ALL_EDGES);
+            if (!snap.isValid() || snap.getQueryDistance() > precheckMaxDistanceMeters) offRoad++;
+        }
+        boolean skip = offRoad >= precheckOffRoadFraction * samples;
+
+        long checked = precheckedTrips.incrementAndGet();
+        long skipped = skip ? skippedTrips.incrementAndGet() : skippedTrips.get();
+        pipelineMetrics.recordOffRoadPrecheck(skip);
+        if (skip) {
+            log.debug("Trip {} skipped map matching: {} of {} samples have no road within {} m",
+                    trip.getFirst().getTripId(), offRoad, samples, precheckMaxDistanceMeters);
+        }
+        if (checked % PRECHECK_LOG_INTERVAL == 0) {
+            log.info("Off-road pre-check: skipped map matching for {} of {} trips ({}%)",
+                    skipped, checked, Math.round(1000.0 * skipped / checked) / 10.0);
+        }
+        return skip;
+    }
+
+    /**
+     * Window boundaries [start, end) over observation indices; consecutive windows share {@code windowOverlap} points.
+     */
+    private List<int[]> splitIntoWindows(int size) {
+        List<int[]> windows = new ArrayList<>();
+        int step = windowSize - windowOverlap;
+        for (int start = 0; ; start += step) {
+            int end = Math.min(size, start + windowSize);
+            windows.add(new int[]{start, end});
+            if (end == size) break;
+        }
+        return windows;
+    }
+
+    private List<WindowMatch> matchWindowsInParallel(List<PositionalData> trip, List<int[]> windows) {
+        List<Callable<WindowMatch>> tasks = windows.stream()
+                .<Callable<WindowMatch>>map(w -> () -> matchWindow(trip.subList(w[0], w[1])))
+                .toList();
+        try {
+            List<WindowMatch> results = new ArrayList<>();
+            for (Future<WindowMatch> future : windowExecutor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Map matching interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Map matching failed", e.getCause());
+        }
+    }
 
+    private void appendSegment(List<MatchedSegment> segments, List<PositionalData> piece,
+                               List<Integer> edgeIds, boolean offRoad) {
+        if (piece.isEmpty()) return;
+        if (!segments.isEmpty() && segments.getLast().offRoad() == offRoad) {
+            // always our own ArrayLists, see below
+            segments.getLast().points().addAll(piece);
+            segments.getLast().edgeIds().addAll(edgeIds);
+        } else {
+            segments.add(new MatchedSegment(new ArrayList<>(piece), new ArrayList<>(edgeIds), offRoad));
+        }
+    }
+
+    /**
+     * @param observationPoints per observation of the window, index of the point it was snapped to, {@code -1}
+     *                          if the matcher dropped it
+     * @param observationEdges  per observation, index into {@code edgeIds} of the edge it was snapped on, {@code -1}
+     *                          if none
+     */
+    private record WindowMatch(List<PositionalData> points, List<Integer> edgeIds,
+                               int[] observationPoints, int[] observationEdges) {
+
+        /**
+         * First observation at or after the given one that was snapped onto the path, {@code -1} if none.
+         */
+        int anchor(int observation) {
+            for (int i = observation; i < observationPoints.length; i++) {
+                if (observationPoints[i] >= 0) return i;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Matches one window of observations, served from the cache when an identical window
+     * (same quantized coordinates, same graph) was matched before. Returns null if matching fails.
+     */
+    private WindowMatch matchWindow(List<PositionalData> window) {
+        String key = matchingCache.fingerprint(window);
+        int tripId = window.getFirst().getTripId();
+        Optional<MapMatchingCache.CachedMatch> cached = matchingCache.get(key);
+        if (cached.isPresent()) {
+            return fromCache(cached.get(), tripId);
+        }
+
+        WindowMatch match = runHmm(window);
+        matchingCache.put(key, toCache(match));
+        return match;
+    }
+
+    private MapMatchingCache.CachedMatch toCache(WindowMatch match) {
+        if (match == null) return MapMatchingCache.CachedMatch.FAILED;
+        int n = match.points().size();
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        boolean[] junctions = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            PositionalData p = match.points().get(i);
+            lats[i] = p.getLat();
+            lons[i] = p.getLon();
+            junctions[i] = p.isJunction();
+        }
+        int[] edgeIds = match.edgeIds().stream().mapToInt(Integer::intValue).toArray();
+        return new MapMatchingCache.CachedMatch(lats, lons, junctions, edgeIds,
+                match.observationPoints(), match.observationEdges());
+    }
+
+    private WindowMatch fromCache(MapMatchingCache.CachedMatch cached, int tripId) {
+        if (cached.failed()) return null;
+        List<PositionalData> points = new ArrayList<>(cached.lats().length);
+        for (int i = 0; i < cached.lats().length; i++) {
+            PositionalData p = new PositionalData(cached.lats()[i], cached.lons()[i], null, tripId);
+            p.setJunction(cached.junctions()[i]);
+            points.add(p);
+        }
+        List<Integer> edgeIds = Arrays.stream(cached.edgeIds()).boxed().collect(Collectors.toList());
+        return new WindowMatch(points, edgeIds, cached.observationPoints(), cached.observationEdges());
+    }
+
+    /**
+     * Runs the HMM on one window of observations. Returns null if matching fails.
+     */
+    private WindowMatch runHmm(List<PositionalData> window) {
         // 1. Convert our PositionalData to GraphHopper Observations
-        List<Observation> observations = trip.stream()
+        List<Observation> observations = window.stream()
                 .map(p -> new Observation(new GHPoint(p.getLat(), p.getLon())))
                 .collect(Collectors.toList());
 
@@ -46,23 +328,110 @@ public class MapMatchingServiceGraphHopper implements MapMatchingService {
 
             // 4. Extract the continuous, clean road geometry
             PointList matchedPoints = matchResult.getMergedPath().calcPoints();
+            Set<Coordinate> junctions = collectJunctions(matchResult);
             List<PositionalData> matchedTrajectory = new ArrayList<>();
-            int tripId = trip.getFirst().getTripId(); // Preserve the trip ID
+            int tripId = window.getFirst().getTripId(); // Preserve the trip ID
 
             for (int i = 0; i < matchedPoints.size(); i++) {
-                matchedTrajectory.add(new PositionalData(
+                PositionalData point = new PositionalData(
                         matchedPoints.getLat(i),
                         matchedPoints.getLon(i),
                         null,
                         tripId
-                ));
+                );
+                point.setJunction(junctions.contains(new Coordinate(point.getLat(), point.getLon())));
+                matchedTrajectory.add(point);
             }
 
-            return matchedTrajectory;
+            if (matchedTrajectory.size() < 2) return null;
+            Map<Observation, Integer> observationIndex = new IdentityHashMap<>();
+            for (int i = 0; i < observations.size(); i++) observationIndex.put(observations.get(i), i);
+            int[] observationEdges = new int[observations.size()];
+            List<Integer> edgeIds = collectEdgeIds(matchResult, observationIndex, observationEdges);
+            int[] observationPoints = locateObservations(matchResult, observationIndex, matchedTrajectory);
+            return new WindowMatch(matchedTrajectory, edgeIds, observationPoints, observationEdges);
 
         } catch (Exception e) {
-            log.debug("HMM Map matching failed for trip {}: {}", trip.getFirst().getTripId(), e.getMessage());
+            log.debug("HMM Map matching failed for trip {}: {}", window.getFirst().getTripId(), e.getMessage());
             return null;
         }
     }
+
+    private record Coordinate(double lat, double lon) {}
+
+    /**
+     * Base graph edge ids of the matched path. Virtual edges (parts of an edge split by a snapped
+     * observation) are mapped back to their original edge; consecutive repeats are collapsed.
+     * Fills {@code observationEdges} with the index of the edge every observation was snapped on.
+     */
+    private List<Integer> collectEdgeIds(MatchResult matchResult, Map<Observation, Integer> observationIndex,
+                                         int[] observationEdges) {
+        Arrays.fill(observationEdges, -1);
+        int baseEdgeCount = hopper.getBaseGraph().getEdges();
+        List<Integer> edgeIds = new ArrayList<>();
+        for (EdgeMatch edgeMatch : matchResult.getEdgeMatches()) {
+            EdgeIteratorState edge = edgeMatch.getEdgeState();
+            int edgeId = edge.getEdge();
+            if (edgeId >= baseEdgeCount) {
+                if (!(edge instanceof VirtualEdgeIteratorState virtualEdge)) continue;
+                edgeId = GHUtility.getEdgeFromEdgeKey(virtualEdge.getOriginalEdgeKey());
+            }
+            if (edgeIds.isEmpty() || edgeIds.getLast() != edgeId) {
+                edgeIds.add(edgeId);
+            }
+            for (State state : edgeMatch.getStates()) {
+                Integer i = observationIndex.get(state.getEntry());
+                if (i != null) observationEdges[i] = edgeIds.size() - 1;
+            }
+        }
+        return edgeIds;
+    }
+
+    /**
+     * Index of the path point every observation was snapped to, {@code -1} for observations the matcher
+     * dropped. The merged path runs through the snapped points in observation order, so each one is
+     * searched forward from the previous — a trip passing the same place twice gets the right occurrence.
+     */
+    private int[] locateObservations(MatchResult matchResult, Map<Observation, Integer> observationIndex,
+                                     List<PositionalData> points) {
+        int[] observationPoints = new int[observationIndex.size()];
+        Arrays.fill(observationPoints, -1);
+        int next = 0;
+        for (EdgeMatch edgeMatch : matchResult.getEdgeMatches()) {
+            for (State state : edgeMatch.getStates()) {
+                Integer i = observationIndex.get(state.getEntry());
+                if (i == null) continue;
+                double lat = state.getSnap().getSnappedPoint().getLat();
+                double lon = state.getSnap().getSnappedPoint().getLon();
+                for (int p = next; p < points.size(); p++) {
+                    if (Math.abs(points.get(p).getLat() - lat) < SNAP_EPSILON_DEGREES
+                            && Math.abs(points.get(p).getLon() - lon) < SNAP_EPSILON_DEGREES) {
+                        observationPoints[i] = p;
+                        next = p;
+                        break;
+                    }
+                }
+            }
+        }
+        return observationPoints;
+    }
+
+    /**
+     * Coordinates of the real tower nodes (junctions) traversed by the matched path.
+     * Virtual nodes created by snapping the observations are not junctions and are skipped.
+     */
+    private Set<Coordinate> collectJunctions(MatchResult matchResult) {
+        NodeAccess nodeAccess = hopper.getBaseGraph().getNodeAccess();
+        int towerNodeCount = hopper.getBaseGraph().getNodes();
+        Set<Coordinate> junctions = new HashSet<>();
+        for (EdgeMatch edgeMatch : matchResult.getEdgeMatches()) {
+            EdgeIteratorState edge = edgeMatch.getEdgeState();
+            for (int node : new int[]{edge.getBaseNode(), edge.getAdjNode()}) {
+                if (node < towerNodeCount) {
+                    junctions.add(new Coordinate(nodeAccess.getLat(node), nodeAccess.getLon(node)));
+                }
+            }
+        }
+        return junctions;
+    }
 }
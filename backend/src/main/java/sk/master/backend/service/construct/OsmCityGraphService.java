@@ -5,7 +5,6 @@ import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.EnumEncodedValue;
 import com.graphhopper.routing.ev.RoadEnvironment;
 import com.graphhopper.routing.ev.VehicleAccess;
-import org.jgrapht.alg.connectivity.ConnectivityInspector;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.index.LocationIndexTree;
@@ -19,6 +18,7 @@ import org.wololo.jts2geojson.GeoJSONReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import sk.master.backend.persistence.model.GeoMath;
 import sk.master.backend.persistence.model.RoadGraph;
 import sk.master.backend.persistence.model.RoadNode;
 import tools.jackson.databind.JsonNode;
@@ -37,7 +37,6 @@ public class OsmCityGraphService {
 
     private static final Logger log = LoggerFactory.getLogger(OsmCityGraphService.class);
     private static final String NOMINATIM_URL = "https://nominatim.openstreetmap.org/search";
-    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
 
     private final GraphHopper hopper;
     private final HttpClient httpClient;
@@ -149,35 +148,61 @@ public class OsmCityGraphService {
 
             if (!baseInside && !adjInside) return;
 
-            PointList geometry = edge.fetchWayGeometry(FetchMode.ALL);
-            List<RoadNode> chain = buildChain(edgeId, geometry, baseNodeId, adjNodeId,
+            insertEdgeChain(edgeId, edge.fetchWayGeometry(FetchMode.ALL), baseNodeId, adjNodeId,
                     nodeAccess, towerNodeCache, roadGraph);
-
-            for (int i = 0; i < chain.size() - 1; i++) {
-                RoadNode a = chain.get(i);
-                RoadNode b = chain.get(i + 1);
-                roadGraph.addEdge(a, b, haversineDistance(a.getLat(), a.getLon(), b.getLat(), b.getLon()));
-            }
         });
 
         return roadGraph;
     }
 
+    /**
+     * Inserts a single GraphHopper base graph edge with its full geometry into the road graph,
+     * using the same tower/pillar node ids as the city import. Tower nodes are shared through
+     * {@code towerNodeCache}, so edges inserted from different trips connect by construction.
+     *
+     * @return the node chain of the edge from its base to its adjacent tower node
+     */
+    public List<RoadNode> addGraphHopperEdge(RoadGraph roadGraph, int edgeId, Map<Integer, RoadNode> towerNodeCache) {
+        BaseGraph baseGraph = hopper.getBaseGraph();
+        var edge = baseGraph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+        return insertEdgeChain(edgeId, edge.fetchWayGeometry(FetchMode.ALL), edge.getBaseNode(), edge.getAdjNode(),
+                baseGraph.getNodeAccess(), towerNodeCache, roadGraph);
+    }
+
+    private List<RoadNode> insertEdgeChain(int edgeId, PointList geometry, int baseNodeId, int adjNodeId,
+                                           NodeAccess nodeAccess, Map<Integer, RoadNode> towerNodeCache,
+                                           RoadGraph roadGraph) {
+        List<RoadNode> chain = buildChain(edgeId, geometry, baseNodeId, adjNodeId,
+                nodeAccess, towerNodeCache, roadGraph);
+
+        for (int i = 0; i < chain.size() - 1; i++) {
+            RoadNode a = chain.get(i);
+            RoadNode b = chain.get(i + 1);
+            roadGraph.addEdge(a, b, GeoMath.distance(a, b));
+        }
+        return chain;
+    }
+
     private void retainLargestComponent(RoadGraph roadGraph, double retainLargestComponentPercent) {
-        var inspector = new ConnectivityInspector<>(roadGraph.getGraph());
-        List<Set<RoadNode>> components = inspector.connectedSets();
-        if (components.size() <= 1) return;
+        int[] componentSizes = roadGraph.getComponentSizes();
+        if (componentSizes.length <= 1) return;
 
         int threshold = Math.max(1, (int)(roadGraph.getNodeCount() * retainLargestComponentPercent / 100.0));
-        List<Set<RoadNode>> small = components.stream()
-                .filter(c -> c.size() < threshold)
+        // Ids are ordered by size, so the small components are a suffix
+        int firstSmall = 0;
+        while (firstSmall < componentSizes.length && componentSizes[firstSmall] >= threshold) firstSmall++;
+        int smallCount = componentSizes.length - firstSmall;
+        if (smallCount == 0) return;
+
+        Map<String, Integer> componentIds = roadGraph.getComponentIds();
+        int minSmallId = firstSmall;
+        List<RoadNode> small = roadGraph.getNodes().stream()
+                .filter(node -> componentIds.get(node.getId()) >= minSmallId)
                 .toList();
-
-        int removed = small.stream().mapToInt(Set::size).sum();
-        small.stream().flatMap(Set::stream).forEach(roadGraph::removeNode);
+        small.forEach(roadGraph::removeNode);
 
         log.info("Pruned {} node(s) from {} small subgraph(s) (threshold: {} nodes at {}%, {} subgraph(s) kept)",
-                removed, small.size(), threshold, retainLargestComponentPercent, components.size() - small.size());
+                small.size(), smallCount, threshold, retainLargestComponentPercent, firstSmall);
     }
 
     private boolean isInside(double lat, double lon, BBox bbox, PreparedGeometry preparedPolygon) {
@@ -210,9 +235,14 @@ public class OsmCityGraphService {
                     return n;
                 });
             } else {
-                // Pillar node — intermediate point on road, unique to this edge
-                node = new RoadNode(edgeId + "_p" + i, lat, lon);
-                roadGraph.addNode(node);
+                // Pillar node — intermediate point on road, unique to this edge; reused when the
+                // edge is inserted again, so the chain only holds nodes the graph knows
+                String pillarId = edgeId + "_p" + i;
+                node = roadGraph.getNode(pillarId);
+                if (node == null) {
+                    node = new RoadNode(pillarId, lat, lon);
+                    roadGraph.addNode(node);
+                }
             }
 
             chain.add(node);
@@ -220,13 +250,4 @@ public class OsmCityGraphService {
 
         return chain;
     }
-
-    private double haversineDistance(double lat1, double lon1, double lat2, double lon2) {
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        return EARTH_RADIUS_METERS * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-    }
 }
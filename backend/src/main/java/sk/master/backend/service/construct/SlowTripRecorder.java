@@ -0,0 +1,158 @@
+package sk.master.backend.service.construct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sk.master.backend.persistence.model.MatchedSegment;
+import sk.master.backend.persistence.model.PositionalData;
+import sk.master.backend.service.util.PipelineMetrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Records trips whose map matching took longer than the configured threshold. The slowest
+ * {@code max-dumps} trips are also written as CSV files ({@code lat,lon,timestamp,trip_id}) in
+ * the format read by {@code FileServiceImpl}, so they can be uploaded again or replayed offline
+ * against {@link MapMatchingServiceGraphHopper}. A dump is deleted once a slower trip displaces it;
+ * dumps left by earlier runs count towards the limit.
+ */
+@Component
+public class SlowTripRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowTripRecorder.class);
+    private static final Pattern DUMP_NAME = Pattern.compile("trip--?\\d+-(\\d+)ms-\\d+\\.csv");
+
+    public enum Outcome {
+        MATCHED, PARTIAL, OFF_ROAD;
+
+        static Outcome of(List<MatchedSegment> segments) {
+            long offRoad = segments.stream().filter(MatchedSegment::offRoad).count();
+            if (offRoad == 0) return MATCHED;
+            return offRoad == segments.size() ? OFF_ROAD : PARTIAL;
+        }
+    }
+
+    // Retained dump; the duration is also part of the file name, so the set survives a restart
+    private record Dump(long durationMillis, Path file) {
+    }
+
+    private final long thresholdNanos;
+    private final int maxDumps;
+    private final Path dumpDirectory;
+    private final PipelineMetrics pipelineMetrics;
+    // Min-heap on duration: the fastest of the retained dumps is displaced first
+    private final PriorityQueue<Dump> slowest = new PriorityQueue<>(Comparator.comparingLong(Dump::durationMillis));
+
+    public SlowTripRecorder(PipelineMetrics pipelineMetrics,
+                            @Value("${pipeline.matching.slow-trips.threshold-ms:5000}") long thresholdMillis,
+                            @Value("${pipeline.matching.slow-trips.max-dumps:20}") int maxDumps,
+                            @Value("${pipeline.matching.slow-trips.dump-directory:}") String dumpDirectory) {
+        this.pipelineMetrics = pipelineMetrics;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.maxDumps = Math.max(0, maxDumps);
+        this.dumpDirectory = dumpDirectory == null || dumpDirectory.isBlank() ? null : Path.of(dumpDirectory);
+        loadExistingDumps();
+    }
+
+    /**
+     * Called after every matched trip; cheap unless the trip exceeded the threshold.
+     */
+    public void record(List<PositionalData> trip, List<MatchedSegment> segments, long nanos) {
+        if (nanos < thresholdNanos || trip.isEmpty()) return;
+
+        int tripId = trip.getFirst().getTripId();
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        Outcome outcome = Outcome.of(segments);
+        pipelineMetrics.recordSlowTrip();
+        log.warn("Slow map matching: trip {} with {} points took {} ms ({}, {} segments)",
+                tripId, trip.size(), durationMillis, outcome, segments.size());
+
+        if (maxDumps == 0 || dumpDirectory == null) return;
+        synchronized (slowest) {
+            if (!qualifies(durationMillis)) return;
+        }
+        // Written outside the lock; a trip that was displaced meanwhile deletes its own dump
+        Path file = writeDump(trip, tripId, durationMillis);
+        if (file == null) return;
+        Dump displaced;
+        synchronized (slowest) {
+            if (!qualifies(durationMillis)) {
+                displaced = new Dump(durationMillis, file);
+            } else {
+                displaced = slowest.size() >= maxDumps ? slowest.poll() : null;
+                slowest.add(new Dump(durationMillis, file));
+            }
+        }
+        if (displaced != null) deleteDump(displaced.file());
+    }
+
+    private boolean qualifies(long durationMillis) {
+        return slowest.size() < maxDumps || slowest.peek().durationMillis() < durationMillis;
+    }
+
+    /**
+     * Takes over the dumps of earlier runs and deletes all but the slowest {@code max-dumps}.
+     */
+    private void loadExistingDumps() {
+        if (dumpDirectory == null || !Files.isDirectory(dumpDirectory)) return;
+        List<Dump> existing = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dumpDirectory)) {
+            files.forEach(file -> {
+                Matcher matcher = DUMP_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) existing.add(new Dump(Long.parseLong(matcher.group(1)), file));
+            });
+        } catch (IOException e) {
+            log.warn("Can't list slow trip dumps in {}: {}", dumpDirectory, e.getMessage());
+            return;
+        }
+        existing.sort(Comparator.comparingLong(Dump::durationMillis).reversed());
+        for (int i = 0; i < existing.size(); i++) {
+            if (i < maxDumps) slowest.add(existing.get(i));
+            else deleteDump(existing.get(i).file());
+        }
+        if (existing.size() > maxDumps) {
+            log.info("Deleted {} old slow trip dump(s) from {}", existing.size() - maxDumps, dumpDirectory);
+        }
+    }
+
+    private Path writeDump(List<PositionalData> trip, int tripId, long durationMillis) {
+        Path file = dumpDirectory.resolve("trip-" + tripId + "-" + durationMillis + "ms-" + System.currentTimeMillis() + ".csv");
+        try {
+            Files.createDirectories(dumpDirectory);
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write("lat,lon,timestamp,trip_id");
+                writer.newLine();
+                for (PositionalData p : trip) {
+                    writer.write(p.getLat() + "," + p.getLon() + ","
+                            + (p.getTimestamp() != null ? p.getTimestamp().toString() : "") + "," + tripId);
+                    writer.newLine();
+                }
+            }
+            return file;
+        } catch (IOException e) {
+            log.warn("Can't write slow trip dump {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteDump(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Can't delete slow trip dump {}: {}", file, e.getMessage());
+        }
+    }
+}
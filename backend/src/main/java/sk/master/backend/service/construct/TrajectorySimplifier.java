@@ -0,0 +1,101 @@
+package sk.master.backend.service.construct;
+
+import org.springframework.stereotype.Component;
+import sk.master.backend.persistence.model.PositionalData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Douglas–Peucker simplification of matched trajectories.
+ * Junction points and both endpoints are always kept; the trajectory is split at them
+ * and every piece in between is simplified independently.
+ */
+@Component
+public class TrajectorySimplifier {
+
+    private static final double METERS_PER_DEGREE = 6_371_000.0 * Math.PI / 180.0;
+
+    public List<PositionalData> simplify(List<PositionalData> trajectory, double toleranceMeters) {
+        int n = trajectory.size();
+        if (toleranceMeters <= 0 || n <= 2) return trajectory;
+
+        // Local equirectangular projection — accurate enough for the tolerance of a few meters
+        double lat0 = trajectory.getFirst().getLat();
+        double lon0 = trajectory.getFirst().getLon();
+        double cosLat0 = Math.cos(Math.toRadians(lat0));
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            PositionalData p = trajectory.get(i);
+            x[i] = (p.getLon() - lon0) * cosLat0 * METERS_PER_DEGREE;
+            y[i] = (p.getLat() - lat0) * METERS_PER_DEGREE;
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        for (int i = 1; i < n - 1; i++) {
+            if (trajectory.get(i).isJunction()) keep[i] = true;
+        }
+
+        // Simplify each span between consecutive anchors (endpoints and junctions)
+        double toleranceSq = toleranceMeters * toleranceMeters;
+        int anchor = 0;
+        for (int i = 1; i < n; i++) {
+            if (keep[i]) {
+                douglasPeucker(x, y, anchor, i, toleranceSq, keep);
+                anchor = i;
+            }
+        }
+
+        List<PositionalData> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) result.add(trajectory.get(i));
+        }
+        return result;
+    }
+
+    private void douglasPeucker(double[] x, double[] y, int from, int to, double toleranceSq, boolean[] keep) {
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{from, to});
+
+        while (!stack.isEmpty()) {
+            int[] span = stack.pop();
+            int a = span[0], b = span[1];
+            if (b - a < 2) continue;
+
+            double maxDistSq = -1;
+            int maxIdx = -1;
+            for (int i = a + 1; i < b; i++) {
+                double d = segmentDistanceSq(x[i], y[i], x[a], y[a], x[b], y[b]);
+                if (d > maxDistSq) {
+                    maxDistSq = d;
+                    maxIdx = i;
+                }
+            }
+
+            if (maxDistSq > toleranceSq) {
+                keep[maxIdx] = true;
+                stack.push(new int[]{a, maxIdx});
+                stack.push(new int[]{maxIdx, b});
+            }
+        }
+    }
+
+    /**
+     * Squared distance from point P to segment AB (not the infinite line, so U-turns are kept).
+     */
+    private double segmentDistanceSq(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lenSq = dx * dx + dy * dy;
+        double t = lenSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lenSq;
+        t = Math.max(0, Math.min(1, t));
+        double cx = ax + t * dx - px;
+        double cy = ay + t * dy - py;
+        return cx * cx + cy * cy;
+    }
+}
@@ -0,0 +1,159 @@
+package sk.master.backend.service.graph;
+
+import sk.master.backend.persistence.model.RoadEdge;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable int-indexed snapshot of a {@link RoadGraph} in compressed sparse row form, for
+ * algorithms that run many traversals. Neighbours of node {@code v} are the arc indices
+ * {@code [start(v), end(v))}, sorted by target index; every undirected edge is stored as two arcs.
+ */
+public final class CompactGraph {
+
+    private final RoadNode[] nodes;
+    private final Map<String, Integer> indexById;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+
+    private CompactGraph(RoadNode[] nodes, Map<String, Integer> indexById, int[] offsets, int[] targets, double[] weights) {
+        this.nodes = nodes;
+        this.indexById = indexById;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    public static CompactGraph of(RoadGraph roadGraph) {
+        int n = roadGraph.getNodeCount();
+        RoadNode[] nodes = roadGraph.getNodes().toArray(new RoadNode[0]);
+        Map<String, Integer> indexById = HashMap.newHashMap(n);
+        for (int i = 0; i < n; i++) indexById.put(nodes[i].getId(), i);
+
+        int m = roadGraph.getEdgeCount();
+        int[] sources = new int[m];
+        int[] edgeTargets = new int[m];
+        double[] edgeWeights = new double[m];
+        int[] offsets = new int[n + 1];
+        int e = 0;
+        for (RoadEdge edge : roadGraph.getEdges()) {
+            Integer u = indexById.get(edge.sourceId());
+            Integer v = indexById.get(edge.targetId());
+            if (u == null || v == null || u.equals(v)) continue;
+            sources[e] = u;
+            edgeTargets[e] = v;
+            edgeWeights[e] = edge.distanceMeters();
+            offsets[u + 1]++;
+            offsets[v + 1]++;
+            e++;
+        }
+        for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+
+        int[] targets = new int[offsets[n]];
+        double[] weights = new double[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < e; i++) {
+            int u = sources[i], v = edgeTargets[i];
+            targets[fill[u]] = v;
+            weights[fill[u]++] = edgeWeights[i];
+            targets[fill[v]] = u;
+            weights[fill[v]++] = edgeWeights[i];
+        }
+        for (int v = 0; v < n; v++) sortSlice(targets, weights, offsets[v], offsets[v + 1]);
+        return new CompactGraph(nodes, indexById, offsets, targets, weights);
+    }
+
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * Number of undirected edges.
+     */
+    public int edgeCount() {
+        return targets.length / 2;
+    }
+
+    public RoadNode node(int v) {
+        return nodes[v];
+    }
+
+    /**
+     * Index of the node with the given id, or -1 if it is not part of the snapshot.
+     */
+    public int indexOf(String nodeId) {
+        Integer index = indexById.get(nodeId);
+        return index != null ? index : -1;
+    }
+
+    public int degree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    public int start(int v) {
+        return offsets[v];
+    }
+
+    public int end(int v) {
+        return offsets[v + 1];
+    }
+
+    public int target(int arc) {
+        return targets[arc];
+    }
+
+    public double weight(int arc) {
+        return weights[arc];
+    }
+
+    /**
+     * Connected component label of every node, labels are dense from 0.
+     */
+    public int[] componentLabels() {
+        int n = nodes.length;
+        int[] labels = new int[n];
+        Arrays.fill(labels, -1);
+        int[] stack = new int[n];
+        int next = 0;
+        for (int s = 0; s < n; s++) {
+            if (labels[s] != -1) continue;
+            int top = 0;
+            stack[top++] = s;
+            labels[s] = next;
+            while (top > 0) {
+                int u = stack[--top];
+                for (int a = offsets[u]; a < offsets[u + 1]; a++) {
+                    int v = targets[a];
+                    if (labels[v] == -1) {
+                        labels[v] = next;
+                        stack[top++] = v;
+                    }
+                }
+            }
+            next++;
+        }
+        return labels;
+    }
+
+    private static void sortSlice(int[] targets, double[] weights, int from, int to) {
+        if (to - from < 2) return;
+        // Road nodes have a handful of neighbours — insertion sort beats anything fancier
+        for (int i = from + 1; i < to; i++) {
+            int t = targets[i];
+            double w = weights[i];
+            int j = i - 1;
+            while (j >= from && targets[j] > t) {
+                targets[j + 1] = targets[j];
+                weights[j + 1] = weights[j];
+                j--;
+            }
+            targets[j + 1] = t;
+            weights[j + 1] = w;
+        }
+    }
+}
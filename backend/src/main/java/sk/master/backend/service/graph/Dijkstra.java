@@ -0,0 +1,87 @@
+package sk.master.backend.service.graph;
+
+import java.util.Arrays;
+
+/**
+ * Reusable single-source Dijkstra over a {@link CompactGraph}. One instance per thread;
+ * only the nodes reached by the previous run are reset, so runs inside small components stay cheap.
+ */
+public final class Dijkstra {
+
+    private final CompactGraph graph;
+    private final double[] distances;
+    private final int[] settled;
+    private final DoubleIntHeap heap;
+    private int settledCount;
+
+    public Dijkstra(CompactGraph graph) {
+        this.graph = graph;
+        this.distances = new double[graph.nodeCount()];
+        this.settled = new int[graph.nodeCount()];
+        this.heap = new DoubleIntHeap(graph.nodeCount());
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Runs from {@code source} over the whole component and returns its eccentricity.
+     */
+    public double run(int source) {
+        return run(source, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Runs from {@code source}, settling only nodes within {@code maxDistance}, and returns
+     * the largest settled distance.
+     */
+    public double run(int source, double maxDistance) {
+        reset();
+        distances[source] = 0.0;
+        heap.insertOrDecrease(source, 0.0);
+        double farthest = 0.0;
+        while (!heap.isEmpty()) {
+            double du = heap.peekKey();
+            int u = heap.poll();
+            settled[settledCount++] = u;
+            farthest = du;
+            for (int a = graph.start(u), end = graph.end(u); a < end; a++) {
+                int v = graph.target(a);
+                double dv = du + graph.weight(a);
+                if (dv < distances[v] && dv <= maxDistance) {
+                    distances[v] = dv;
+                    heap.insertOrDecrease(v, dv);
+                }
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * Distance from the last source, {@code +Infinity} if the node was not reached.
+     */
+    public double distance(int node) {
+        return distances[node];
+    }
+
+    /**
+     * Read-only view of the distance array of the last run.
+     */
+    public double[] distances() {
+        return distances;
+    }
+
+    /**
+     * Number of nodes settled by the last run; {@link #settled(int)} lists them by increasing distance.
+     */
+    public int settledCount() {
+        return settledCount;
+    }
+
+    public int settled(int i) {
+        return settled[i];
+    }
+
+    private void reset() {
+        for (int i = 0; i < settledCount; i++) distances[settled[i]] = Double.POSITIVE_INFINITY;
+        settledCount = 0;
+    }
+}
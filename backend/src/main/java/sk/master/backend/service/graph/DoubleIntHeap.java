@@ -0,0 +1,114 @@
+package sk.master.backend.service.graph;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of node indices keyed by a double, with decrease-key.
+ * Sized once for a graph and reused across Dijkstra runs without allocation.
+ */
+public final class DoubleIntHeap {
+
+    private final int[] heap;
+    private final int[] position; // -1 = not in the heap
+    private final double[] keys;
+    private int size;
+
+    public DoubleIntHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.keys = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inserts the node, or lowers its key if it is already queued with a larger one.
+     */
+    public void insertOrDecrease(int node, double key) {
+        int pos = position[node];
+        if (pos == -1) {
+            pos = size++;
+            heap[pos] = node;
+            position[node] = pos;
+        } else if (key >= keys[node]) {
+            return;
+        }
+        keys[node] = key;
+        siftUp(pos);
+    }
+
+    /**
+     * Inserts the node or moves it to the new key in either direction.
+     */
+    public void update(int node, double key) {
+        int pos = position[node];
+        if (pos == -1) {
+            insertOrDecrease(node, key);
+            return;
+        }
+        double old = keys[node];
+        keys[node] = key;
+        if (key < old) siftUp(pos);
+        else if (key > old) siftDown(pos);
+    }
+
+    public double peekKey() {
+        return keys[heap[0]];
+    }
+
+    public int poll() {
+        int min = heap[0];
+        position[min] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) position[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int pos) {
+        int node = heap[pos];
+        double key = keys[node];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            int parentNode = heap[parent];
+            if (keys[parentNode] <= key) break;
+            heap[pos] = parentNode;
+            position[parentNode] = pos;
+            pos = parent;
+        }
+        heap[pos] = node;
+        position[node] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int node = heap[pos];
+        double key = keys[node];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) child = right;
+            if (keys[heap[child]] >= key) break;
+            heap[pos] = heap[child];
+            position[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = node;
+        position[node] = pos;
+    }
+}
@@ -0,0 +1,186 @@
+package sk.master.backend.service.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sk.master.backend.service.graph.CompactGraph;
+import sk.master.backend.service.graph.DoubleIntHeap;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Node betweenness centrality by Brandes' algorithm over a uniform sample of sources.
+ * <p>
+ * Each sampled source runs a weighted single-source shortest-path count followed by the dependency
+ * accumulation in reverse settle order. Workers claim sources from a shared cursor and accumulate into
+ * their own {@code double[]}; the arrays are summed at the end. With {@code k} of {@code n} sources the
+ * sums are scaled by {@code n / k} — an unbiased estimate that is exact when every node is a source.
+ * Predecessors are not stored: the reverse pass re-checks {@code d(v) + w(v, w) = d(w)} on the arcs.
+ */
+@Component
+public class BetweennessEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(BetweennessEngine.class);
+    // Relative tolerance for equal path lengths; summed edge lengths differ in the last bits
+    private static final double TIE_TOLERANCE = 1e-9;
+
+    /**
+     * @param betweenness estimated number of shortest paths between other node pairs through each node
+     */
+    public record Result(double[] betweenness, int samples, boolean exact, long millis) {
+    }
+
+    private final MetricsExecutor executor;
+    private final int defaultSamples;
+
+    public BetweennessEngine(MetricsExecutor executor,
+                             @Value("${pipeline.metrics.betweenness.samples:256}") int defaultSamples) {
+        this.executor = executor;
+        this.defaultSamples = defaultSamples;
+    }
+
+    public int getDefaultSamples() {
+        return defaultSamples;
+    }
+
+    public Result compute(CompactGraph graph) {
+        return compute(graph, defaultSamples);
+    }
+
+    public Result compute(CompactGraph graph, int samples) {
+        int n = graph.nodeCount();
+        long start = System.nanoTime();
+        int k = Math.clamp(samples, 0, n);
+        int[] sources = sampleSources(n, k);
+
+        int workers = Math.max(1, Math.min(executor.parallelism(), k));
+        AtomicInteger cursor = new AtomicInteger();
+        double[] betweenness = executor.invoke(() -> IntStream.range(0, workers).parallel()
+                .mapToObj(_ -> new Brandes(graph).accumulate(sources, cursor))
+                .reduce(BetweennessEngine::sum)
+                .orElseGet(() -> new double[n]));
+
+        // Every unordered pair was counted from both ends when both are sources
+        double scale = k == 0 ? 0.0 : (double) n / k / 2.0;
+        for (int v = 0; v < n; v++) betweenness[v] *= scale;
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Betweenness: {} of {} nodes as sources in {} ms", k, n, millis);
+        return new Result(betweenness, k, k == n, millis);
+    }
+
+    /**
+     * {@code k} distinct sources by a partial Fisher–Yates shuffle.
+     */
+    private static int[] sampleSources(int n, int k) {
+        int[] nodes = new int[n];
+        for (int i = 0; i < n; i++) nodes[i] = i;
+        if (k == n) return nodes;
+        SplittableRandom random = new SplittableRandom();
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(n - i);
+            int tmp = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = tmp;
+        }
+        return Arrays.copyOf(nodes, k);
+    }
+
+    private static double[] sum(double[] a, double[] b) {
+        for (int i = 0; i < a.length; i++) a[i] += b[i];
+        return a;
+    }
+
+    /**
+     * One worker: reusable search state and its own accumulator.
+     */
+    private static final class Brandes {
+        private final CompactGraph graph;
+        private final double[] distance;
+        private final double[] sigma;
+        private final double[] delta;
+        private final int[] position;
+        private final int[] order;
+        private final DoubleIntHeap heap;
+        private final double[] betweenness;
+        private int settledCount;
+
+        Brandes(CompactGraph graph) {
+            int n = graph.nodeCount();
+            this.graph = graph;
+            this.distance = new double[n];
+            this.sigma = new double[n];
+            this.delta = new double[n];
+            this.position = new int[n];
+            this.order = new int[n];
+            this.heap = new DoubleIntHeap(n);
+            this.betweenness = new double[n];
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            Arrays.fill(position, -1);
+        }
+
+        double[] accumulate(int[] sources, AtomicInteger cursor) {
+            int i;
+            while ((i = cursor.getAndIncrement()) < sources.length) {
+                run(sources[i]);
+            }
+            return betweenness;
+        }
+
+        private void run(int source) {
+            reset();
+            distance[source] = 0.0;
+            sigma[source] = 1.0;
+            heap.insertOrDecrease(source, 0.0);
+            while (!heap.isEmpty()) {
+                double du = heap.peekKey();
+                int u = heap.poll();
+                position[u] = settledCount;
+                order[settledCount++] = u;
+                for (int a = graph.start(u), end = graph.end(u); a < end; a++) {
+                    int v = graph.target(a);
+                    if (position[v] >= 0) continue;
+                    double dv = du + graph.weight(a);
+                    if (tie(dv, distance[v])) {
+                        sigma[v] += sigma[u];
+                    } else if (dv < distance[v]) {
+                        distance[v] = dv;
+                        sigma[v] = sigma[u];
+                        heap.insertOrDecrease(v, dv);
+                    }
+                }
+            }
+
+            // Dependencies in reverse settle order; predecessors are settled earlier on a shortest path
+            for (int i = settledCount - 1; i > 0; i--) {
+                int w = order[i];
+                double coefficient = (1.0 + delta[w]) / sigma[w];
+                for (int a = graph.start(w), end = graph.end(w); a < end; a++) {
+                    int v = graph.target(a);
+                    if (position[v] >= 0 && position[v] < i && tie(distance[v] + graph.weight(a), distance[w])) {
+                        delta[v] += sigma[v] * coefficient;
+                    }
+                }
+                betweenness[w] += delta[w];
+            }
+        }
+
+        private static boolean tie(double a, double b) {
+            return b != Double.POSITIVE_INFINITY && Math.abs(a - b) <= TIE_TOLERANCE * Math.max(a, b);
+        }
+
+        private void reset() {
+            for (int i = 0; i < settledCount; i++) {
+                int v = order[i];
+                distance[v] = Double.POSITIVE_INFINITY;
+                sigma[v] = 0.0;
+                delta[v] = 0.0;
+                position[v] = -1;
+            }
+            settledCount = 0;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package sk.master.backend.service.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import sk.master.backend.service.graph.CompactGraph;
+import sk.master.backend.service.graph.Dijkstra;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Weighted diameter and radius by eccentricity bounding (iFUB / BoundingDiameters).
+ * <p>
+ * Every Dijkstra run from a source {@code s} with eccentricity {@code e(s)} bounds all other
+ * nodes of its component: {@code max(d, e(s) - d) <= e(w) <= e(s) + d} with {@code d = d(s, w)}.
+ * A node whose bounds can no longer raise the diameter nor lower the radius of its component is
+ * never used as a source. Every component first gets one run from its highest-degree node; then
+ * sources are picked alternately by the largest upper and the smallest lower bound — the first
+ * of them is the farthest node of the first run, i.e. a double sweep — and run in parallel batches
+ * in the component that currently limits the global bounds.
+ * <p>
+ * The bounds are guaranteed at any moment, so {@link #bound} can stop at a relative error target or
+ * a time budget. With a zero target the result is exact: diameter is the largest eccentricity over all
+ * components, radius the smallest eccentricity over components with more than one node — the same
+ * values as a Dijkstra from every node.
+ */
+@Component
+public class EccentricityEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(EccentricityEngine.class);
+    private static final int MAX_BATCH = 16;
+
+    public record Result(double diameterMeters, double radiusMeters, int dijkstraRuns) {
+    }
+
+    /**
+     * Guaranteed bounds; {@code exact()} once the bounds of both metrics met.
+     */
+    public record Bounds(double diameterLower, double diameterUpper, double radiusLower, double radiusUpper,
+                         int dijkstraRuns) {
+
+        public boolean exact() {
+            return diameterLower == diameterUpper && radiusLower == radiusUpper;
+        }
+
+        public boolean within(double relativeError) {
+            return diameterUpper - diameterLower <= relativeError * diameterLower
+                    && radiusUpper - radiusLower <= relativeError * radiusUpper;
+        }
+    }
+
+    private final MetricsExecutor executor;
+
+    public EccentricityEngine(MetricsExecutor executor) {
+        this.executor = executor;
+    }
+
+    public Result compute(CompactGraph graph) {
+        return compute(graph, () -> false);
+    }
+
+    /**
+     * Exact diameter and radius.
+     *
+     * @param cancelled polled between Dijkstra batches; the computation ends with {@link CancellationException}
+     */
+    public Result compute(CompactGraph graph, BooleanSupplier cancelled) {
+        Bounds bounds = bound(graph, 0.0, Long.MAX_VALUE, cancelled);
+        return new Result(bounds.diameterLower(), bounds.radiusUpper(), bounds.dijkstraRuns());
+    }
+
+    /**
+     * Tightens the bounds until both relative gaps are within {@code relativeError} or the budget runs out.
+     */
+    public Bounds bound(CompactGraph graph, double relativeError, long budgetMillis, BooleanSupplier cancelled) {
+        int n = graph.nodeCount();
+        if (n == 0) return new Bounds(0.0, 0.0, 0.0, 0.0, 0);
+        long start = System.nanoTime();
+        long deadline = budgetMillis >= Long.MAX_VALUE / 1_000_000L ? Long.MAX_VALUE : start + budgetMillis * 1_000_000L;
+        Bounds bounds = executor.invoke(() -> new Run(graph, Math.min(MAX_BATCH, executor.parallelism()), cancelled)
+                .bound(relativeError, deadline));
+        log.info("Eccentricity bounds: diameter [{}, {}], radius [{}, {}] after {} Dijkstra runs for {} nodes in {} ms",
+                bounds.diameterLower(), bounds.diameterUpper(), bounds.radiusLower(), bounds.radiusUpper(),
+                bounds.dijkstraRuns(), n, (System.nanoTime() - start) / 1_000_000);
+        return bounds;
+    }
+
+    /**
+     * State of one computation — node bounds, per-component summaries and per-batch Dijkstra workers.
+     */
+    private static final class Run {
+        private final CompactGraph graph;
+        private final BooleanSupplier cancelled;
+        private final Dijkstra[] workers;
+        private final double[] lower;
+        private final double[] upper;
+        private final boolean[] active;
+        private final int[] sources;
+        private final int[] sourceComponents;
+        private final double[] eccentricities;
+        private int runs;
+        private boolean byUpperBound = true;
+
+        // Components of at least two nodes as contiguous slices of members
+        private int[] members;
+        private int[] offsets;
+        private int components;
+        private int[] activeCount;
+        private double[] diameterLower;
+        private double[] diameterUpper;
+        private double[] radiusLower;
+        private double[] radiusUpper;
+
+        Run(CompactGraph graph, int batch, BooleanSupplier cancelled) {
+            int n = graph.nodeCount();
+            this.graph = graph;
+            this.cancelled = cancelled;
+            this.workers = new Dijkstra[Math.max(1, batch)];
+            this.lower = new double[n];
+            this.upper = new double[n];
+            this.active = new boolean[n];
+            this.sources = new int[workers.length];
+            this.sourceComponents = new int[workers.length];
+            this.eccentricities = new double[workers.length];
+            Arrays.fill(upper, Double.POSITIVE_INFINITY);
+        }
+
+        Bounds bound(double relativeError, long deadline) {
+            groupComponents();
+            if (components == 0) return new Bounds(0.0, 0.0, 0.0, 0.0, 0);
+            seed();
+
+            while (true) {
+                Bounds bounds = globalBounds();
+                if (bounds.exact() || bounds.within(relativeError) || System.nanoTime() > deadline) return bounds;
+                checkCancelled();
+
+                // Refine the component that holds the loosest global bound; it always has active nodes left
+                boolean diameterOpen = bounds.diameterUpper() - bounds.diameterLower() > relativeError * bounds.diameterLower();
+                int target = -1;
+                for (int c = 0; c < components; c++) {
+                    if (activeCount[c] == 0) continue;
+                    if (diameterOpen) {
+                        if (target == -1 || diameterUpper[c] > diameterUpper[target]) target = c;
+                    } else if (target == -1 || radiusLower[c] < radiusLower[target]) {
+                        target = c;
+                    }
+                }
+                if (target == -1) return bounds;
+                refine(target);
+            }
+        }
+
+        private void groupComponents() {
+            int n = graph.nodeCount();
+            int[] labels = graph.componentLabels();
+            int labelCount = 0;
+            for (int label : labels) labelCount = Math.max(labelCount, label + 1);
+            int[] sizes = new int[labelCount];
+            for (int label : labels) sizes[label]++;
+
+            // Single nodes have eccentricity 0 and affect neither metric
+            int[] componentOf = new int[labelCount];
+            for (int label = 0; label < labelCount; label++) {
+                componentOf[label] = sizes[label] >= 2 ? components++ : -1;
+            }
+            offsets = new int[components + 1];
+            for (int label = 0; label < labelCount; label++) {
+                if (componentOf[label] >= 0) offsets[componentOf[label] + 1] = sizes[label];
+            }
+            for (int c = 0; c < components; c++) offsets[c + 1] += offsets[c];
+            members = new int[offsets[components]];
+            int[] fill = Arrays.copyOf(offsets, components);
+            for (int v = 0; v < n; v++) {
+                int c = componentOf[labels[v]];
+                if (c >= 0) {
+                    members[fill[c]++] = v;
+                    active[v] = true;
+                }
+            }
+            activeCount = new int[components];
+            for (int c = 0; c < components; c++) activeCount[c] = offsets[c + 1] - offsets[c];
+            diameterLower = new double[components];
+            diameterUpper = new double[components];
+            radiusLower = new double[components];
+            radiusUpper = new double[components];
+        }
+
+        /**
+         * One run from the highest-degree node of every component, a batch of components at a time.
+         */
+        private void seed() {
+            for (int first = 0; first < components; first += workers.length) {
+                checkCancelled();
+                int count = Math.min(workers.length, components - first);
+                for (int i = 0; i < count; i++) {
+                    int c = first + i;
+                    int best = members[offsets[c]];
+                    for (int j = offsets[c] + 1; j < offsets[c + 1]; j++) {
+                        if (graph.degree(members[j]) > graph.degree(best)) best = members[j];
+                    }
+                    sources[i] = best;
+                    sourceComponents[i] = c;
+                    active[best] = false;
+                    activeCount[c]--;
+                }
+                runBatch(count);
+                IntStream.range(0, count).parallel().forEach(i -> {
+                    int c = sourceComponents[i];
+                    updateBounds(c, i, i + 1);
+                    summarize(c);
+                });
+            }
+        }
+
+        private void refine(int c) {
+            int from = offsets[c], to = offsets[c + 1];
+            int count = 0;
+            while (count < workers.length && activeCount[c] > 0) {
+                int source = byUpperBound ? maxUpper(from, to) : minLower(from, to);
+                byUpperBound = !byUpperBound;
+                active[source] = false;
+                activeCount[c]--;
+                sources[count] = source;
+                sourceComponents[count++] = c;
+            }
+            runBatch(count);
+            updateBounds(c, 0, count);
+            summarize(c);
+        }
+
+        private void runBatch(int count) {
+            IntStream.range(0, count).parallel().forEach(i -> {
+                if (workers[i] == null) workers[i] = new Dijkstra(graph);
+                eccentricities[i] = workers[i].run(sources[i]);
+            });
+            runs += count;
+            for (int i = 0; i < count; i++) {
+                lower[sources[i]] = upper[sources[i]] = eccentricities[i];
+            }
+        }
+
+        /**
+         * Applies the runs of workers {@code [first, last)} to the active nodes of component {@code c}.
+         */
+        private void updateBounds(int c, int first, int last) {
+            IntStream range = IntStream.range(offsets[c], offsets[c + 1]);
+            if (offsets[c + 1] - offsets[c] > 4096) range = range.parallel();
+            range.forEach(j -> {
+                int w = members[j];
+                if (!active[w]) return;
+                double lo = lower[w], up = upper[w];
+                for (int i = first; i < last; i++) {
+                    double d = workers[i].distance(w);
+                    lo = Math.max(lo, Math.max(d, eccentricities[i] - d));
+                    up = Math.min(up, eccentricities[i] + d);
+                }
+                lower[w] = lo;
+                upper[w] = up;
+            });
+        }
+
+        /**
+         * Recomputes the bounds of component {@code c} and retires nodes that can no longer change them.
+         */
+        private void summarize(int c) {
+            int from = offsets[c], to = offsets[c + 1];
+            // Any lower bound bounds the diameter from below, any upper bound the radius from above
+            double dLow = 0.0, rUp = Double.POSITIVE_INFINITY;
+            for (int j = from; j < to; j++) {
+                int w = members[j];
+                dLow = Math.max(dLow, lower[w]);
+                rUp = Math.min(rUp, upper[w]);
+            }
+            double dUp = dLow, rLow = rUp;
+            for (int j = from; j < to; j++) {
+                int w = members[j];
+                if (active[w] && upper[w] <= dLow && lower[w] >= rUp) {
+                    active[w] = false;
+                    activeCount[c]--;
+                }
+                // Retired nodes are within [rUp, dLow] and no longer widen the component's bounds
+                if (active[w]) {
+                    dUp = Math.max(dUp, upper[w]);
+                    rLow = Math.min(rLow, lower[w]);
+                }
+            }
+            diameterLower[c] = dLow;
+            diameterUpper[c] = dUp;
+            radiusLower[c] = rLow;
+            radiusUpper[c] = rUp;
+        }
+
+        private Bounds globalBounds() {
+            double dLow = 0.0, dUp = 0.0;
+            double rLow = Double.POSITIVE_INFINITY, rUp = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < components; c++) {
+                dLow = Math.max(dLow, diameterLower[c]);
+                dUp = Math.max(dUp, diameterUpper[c]);
+                rLow = Math.min(rLow, radiusLower[c]);
+                rUp = Math.min(rUp, radiusUpper[c]);
+            }
+            return new Bounds(dLow, dUp, rLow, rUp, runs);
+        }
+
+        private void checkCancelled() {
+            if (cancelled.getAsBoolean()) throw new CancellationException("Eccentricity computation cancelled");
+        }
+
+        private int maxUpper(int from, int to) {
+            int best = -1;
+            for (int j = from; j < to; j++) {
+                int w = members[j];
+                if (!active[w]) continue;
+                if (best == -1 || upper[w] > upper[best]
+                        || (upper[w] == upper[best] && graph.degree(w) > graph.degree(best))) {
+                    best = w;
+                }
+            }
+            return best;
+        }
+
+        private int minLower(int from, int to) {
+            int best = -1;
+            for (int j = from; j < to; j++) {
+                int w = members[j];
+                if (!active[w]) continue;
+                if (best == -1 || lower[w] < lower[best]
+                        || (lower[w] == lower[best] && graph.degree(w) > graph.degree(best))) {
+                    best = w;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package sk.master.backend.service.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sk.master.backend.persistence.dto.ApproximateGraphMetricsDto;
+import sk.master.backend.persistence.dto.ApproximateGraphMetricsDto.MetricBoundsDto;
+import sk.master.backend.persistence.dto.BetweennessDto;
+import sk.master.backend.persistence.dto.GraphMetricsDto;
+import sk.master.backend.persistence.model.GeoMath;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+import sk.master.backend.service.graph.CompactGraph;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * The individual graph metrics of {@link GraphMetricsDto}. {@link #compute(RoadGraph)} evaluates them
+ * one after another; the streaming endpoint runs the expensive ones concurrently and can cancel them.
+ * {@link #approximate} trades precision for time and reports the bounds of what it computed.
+ */
+@Component
+public class GraphMetricsCalculator {
+
+    private static final Logger log = LoggerFactory.getLogger(GraphMetricsCalculator.class);
+    private static final int EXACT_ECCENTRICITY_NODE_THRESHOLD = 100_000;
+    private static final double ECCENTRICITY_BUDGET_SHARE = 0.6;
+    private static final double CLUSTERING_BUDGET_SHARE = 0.1;
+
+    public record Eccentricities(double diameterMeters, double radiusMeters) {
+    }
+
+    private final EccentricityEngine eccentricityEngine;
+    private final TreewidthEngine treewidthEngine;
+    private final ClusteringCoefficientEngine clusteringCoefficientEngine;
+    private final BetweennessEngine betweennessEngine;
+    private final double defaultRelativeError;
+    private final long defaultBudgetMillis;
+    private final int defaultBetweennessTopN;
+
+    public GraphMetricsCalculator(EccentricityEngine eccentricityEngine, TreewidthEngine treewidthEngine,
+                                  ClusteringCoefficientEngine clusteringCoefficientEngine, BetweennessEngine betweennessEngine,
+                                  @Value("${pipeline.metrics.approximate.relative-error:0.01}") double defaultRelativeError,
+                                  @Value("${pipeline.metrics.approximate.time-budget-ms:30000}") long defaultBudgetMillis,
+                                  @Value("${pipeline.metrics.betweenness.top-n:20}") int defaultBetweennessTopN) {
+        this.eccentricityEngine = eccentricityEngine;
+        this.treewidthEngine = treewidthEngine;
+        this.clusteringCoefficientEngine = clusteringCoefficientEngine;
+        this.betweennessEngine = betweennessEngine;
+        this.defaultRelativeError = defaultRelativeError;
+        this.defaultBudgetMillis = defaultBudgetMillis;
+        this.defaultBetweennessTopN = defaultBetweennessTopN;
+    }
+
+    public double getDefaultRelativeError() {
+        return defaultRelativeError;
+    }
+
+    public long getDefaultBudgetMillis() {
+        return defaultBudgetMillis;
+    }
+
+    public int getDefaultBetweennessSamples() {
+        return betweennessEngine.getDefaultSamples();
+    }
+
+    public int getDefaultBetweennessTopN() {
+        return defaultBetweennessTopN;
+    }
+
+    public GraphMetricsDto compute(RoadGraph roadGraph) {
+        int nodeCount = roadGraph.getNodeCount();
+        int edgeCount = roadGraph.getEdgeCount();
+
+        log.info("Computing graph metrics: nodes={}, edges={}", nodeCount, edgeCount);
+
+        if (nodeCount == 0) {
+            return new GraphMetricsDto(0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        }
+
+        // Maintained incrementally by RoadGraph
+        double avgDegree = roadGraph.getAverageDegree();
+        double avgEdgeLengthMeters = roadGraph.getAverageEdgeLengthMeters();
+
+        log.info("Average degree: {}, Average edge length: {} meters", avgDegree, avgEdgeLengthMeters);
+
+        double nodeDensityPerKm2 = nodeDensityPerKm2(roadGraph);
+
+        CompactGraph compactGraph = CompactGraph.of(roadGraph);
+        double clusteringCoefficient = clusteringCoefficient(compactGraph, () -> false);
+
+        log.info("Average clustering coefficient: {}", clusteringCoefficient);
+
+        int connectedComponents = connectedComponents(roadGraph);
+
+        log.info("Graph connectivity: {} component(s)", connectedComponents);
+
+        Eccentricities eccentricities = eccentricities(compactGraph, () -> false);
+        int treewidth = treewidth(compactGraph, () -> false);
+
+        log.info("Diameter: {} meters, Radius: {} meters", eccentricities.diameterMeters(), eccentricities.radiusMeters());
+        log.info("Treewidth: {}", treewidth);
+
+        return new GraphMetricsDto(
+                nodeCount,
+                edgeCount,
+                avgDegree,
+                eccentricities.diameterMeters(),
+                clusteringCoefficient,
+                avgEdgeLengthMeters,
+                nodeDensityPerKm2,
+                connectedComponents,
+                eccentricities.radiusMeters(),
+                treewidth
+        );
+    }
+
+    /**
+     * Metrics within {@code relativeError} or {@code budgetMillis}, whichever comes first. Diameter and
+     * radius get {@value #ECCENTRICITY_BUDGET_SHARE} of the budget for guaranteed bounds, the clustering
+     * coefficient is sampled to a 95 % confidence interval, and treewidth is bracketed by the degeneracy
+     * and a min-degree elimination in the rest. Treewidth has no error control and does not count
+     * towards {@code targetReached}.
+     */
+    public ApproximateGraphMetricsDto approximate(RoadGraph roadGraph, double relativeError, long budgetMillis) {
+        long start = System.nanoTime();
+        int nodeCount = roadGraph.getNodeCount();
+        log.info("Approximating graph metrics: nodes={}, relativeError={}, budget={} ms", nodeCount, relativeError, budgetMillis);
+        if (nodeCount == 0) {
+            MetricBoundsDto zero = new MetricBoundsDto(0, 0, 0, 1.0);
+            return new ApproximateGraphMetricsDto(compute(roadGraph), zero, zero, zero, zero,
+                    relativeError, budgetMillis, 0, true);
+        }
+
+        double nodeDensityPerKm2 = nodeDensityPerKm2(roadGraph);
+        int connectedComponents = connectedComponents(roadGraph);
+        CompactGraph compactGraph = CompactGraph.of(roadGraph);
+
+        EccentricityEngine.Bounds eccentricities = eccentricityEngine.bound(compactGraph, relativeError,
+                (long) (budgetMillis * ECCENTRICITY_BUDGET_SHARE), () -> false);
+        ClusteringCoefficientEngine.Estimate clustering = clusteringCoefficientEngine.estimate(compactGraph,
+                relativeError, Math.max(1, (long) (budgetMillis * CLUSTERING_BUDGET_SHARE)), () -> false);
+        int treewidthLower = treewidthEngine.degeneracy(compactGraph);
+        long treewidthBudget = Math.max(1, budgetMillis - (System.nanoTime() - start) / 1_000_000);
+        int treewidthUpper = treewidthEngine.compute(compactGraph, TreewidthEngine.Heuristic.MIN_DEGREE,
+                treewidthBudget, () -> false).upperBound();
+
+        GraphMetricsDto metrics = new GraphMetricsDto(
+                nodeCount,
+                roadGraph.getEdgeCount(),
+                roadGraph.getAverageDegree(),
+                eccentricities.diameterLower(),
+                clustering.averageCoefficient(),
+                roadGraph.getAverageEdgeLengthMeters(),
+                nodeDensityPerKm2,
+                connectedComponents,
+                eccentricities.radiusUpper(),
+                treewidthUpper
+        );
+        double clusteringHalfWidth = (clustering.upper() - clustering.lower()) / 2;
+        boolean targetReached = eccentricities.within(relativeError)
+                && (clustering.exact() || clusteringHalfWidth <= relativeError * clustering.averageCoefficient());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Approximate metrics in {} ms: diameter [{}, {}], radius [{}, {}], clustering {} ± {}, treewidth [{}, {}]",
+                elapsedMillis, eccentricities.diameterLower(), eccentricities.diameterUpper(),
+                eccentricities.radiusLower(), eccentricities.radiusUpper(),
+                clustering.averageCoefficient(), clusteringHalfWidth, treewidthLower, treewidthUpper);
+
+        return new ApproximateGraphMetricsDto(
+                metrics,
+                new MetricBoundsDto(eccentricities.diameterLower(), eccentricities.diameterLower(),
+                        eccentricities.diameterUpper(), 1.0),
+                new MetricBoundsDto(eccentricities.radiusUpper(), eccentricities.radiusLower(),
+                        eccentricities.radiusUpper(), 1.0),
+                new MetricBoundsDto(clustering.averageCoefficient(), clustering.lower(), clustering.upper(),
+                        clustering.exact() ? 1.0 : 0.95),
+                new MetricBoundsDto(treewidthUpper, treewidthLower, treewidthUpper, 1.0),
+                relativeError,
+                budgetMillis,
+                elapsedMillis,
+                targetReached
+        );
+    }
+
+    /**
+     * The {@code topN} most central nodes by betweenness estimated from {@code samples} Brandes sources.
+     */
+    public BetweennessDto betweenness(RoadGraph roadGraph, int samples, int topN) {
+        CompactGraph compactGraph = CompactGraph.of(roadGraph);
+        BetweennessEngine.Result result = betweennessEngine.compute(compactGraph, samples);
+        int n = compactGraph.nodeCount();
+        double[] betweenness = result.betweenness();
+        double pairs = n > 2 ? (n - 1) * (double) (n - 2) / 2 : 1.0;
+        List<BetweennessDto.NodeCentralityDto> topNodes = IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparingDouble((Integer v) -> betweenness[v]).reversed())
+                .limit(topN)
+                .map(v -> {
+                    RoadNode node = compactGraph.node(v);
+                    return new BetweennessDto.NodeCentralityDto(node.getId(), node.getLat(), node.getLon(),
+                            betweenness[v], betweenness[v] / pairs);
+                })
+                .toList();
+        return new BetweennessDto(topNodes, result.samples(), n, result.exact(), result.millis());
+    }
+
+    /**
+     * Nodes per km² of the bounding box.
+     */
+    public double nodeDensityPerKm2(RoadGraph roadGraph) {
+        if (roadGraph.getNodeCount() == 0) return 0.0;
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (RoadNode node : roadGraph.getNodes()) {
+            if (node.getLat() < minLat) minLat = node.getLat();
+            if (node.getLat() > maxLat) maxLat = node.getLat();
+            if (node.getLon() < minLon) minLon = node.getLon();
+            if (node.getLon() > maxLon) maxLon = node.getLon();
+        }
+        double centerLat = (minLat + maxLat) / 2.0;
+        double widthKm = GeoMath.distance(centerLat, minLon, centerLat, maxLon) / 1000.0;
+        double heightKm = GeoMath.distance(minLat, minLon, maxLat, minLon) / 1000.0;
+        double areaKm2 = widthKm * heightKm;
+        double nodeDensityPerKm2 = areaKm2 > 0 ? roadGraph.getNodeCount() / areaKm2 : 0.0;
+
+        log.info("Node density: {} nodes/km² (area: {} km²)", nodeDensityPerKm2, areaKm2);
+        return nodeDensityPerKm2;
+    }
+
+    public double clusteringCoefficient(CompactGraph graph, BooleanSupplier cancelled) {
+        return clusteringCoefficientEngine.compute(graph, cancelled).averageCoefficient();
+    }
+
+    public int connectedComponents(RoadGraph roadGraph) {
+        return roadGraph.getComponentCount();
+    }
+
+    /**
+     * Exact up to {@value #EXACT_ECCENTRICITY_NODE_THRESHOLD} nodes. Above, the bounding runs only to the default
+     * relative error or time budget; the diameter is its lower and the radius its upper bound — both are
+     * eccentricities of actual nodes.
+     */
+    public Eccentricities eccentricities(CompactGraph graph, BooleanSupplier cancelled) {
+        int n = graph.nodeCount();
+        if (n <= EXACT_ECCENTRICITY_NODE_THRESHOLD) {
+            EccentricityEngine.Result result = eccentricityEngine.compute(graph, cancelled);
+            return new Eccentricities(result.diameterMeters(), result.radiusMeters());
+        }
+
+        log.warn("Large graph ({} nodes) — bounding diameter/radius to {} relative error within {} ms",
+                n, defaultRelativeError, defaultBudgetMillis);
+        EccentricityEngine.Bounds bounds = eccentricityEngine.bound(graph, defaultRelativeError, defaultBudgetMillis, cancelled);
+        return new Eccentricities(bounds.diameterLower(), bounds.radiusUpper());
+    }
+
+    /**
+     * Upper bound within the engine's time budget, also for large graphs.
+     */
+    public int treewidth(CompactGraph graph, BooleanSupplier cancelled) {
+        return treewidthEngine.compute(graph, cancelled).upperBound();
+    }
+}
@@ -0,0 +1,250 @@
+package sk.master.backend.service.metrics;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import sk.master.backend.persistence.dto.GraphMetricEventDto;
+import sk.master.backend.persistence.dto.GraphMetricsDto;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.service.construct.GraphWorkspaceRegistry;
+import sk.master.backend.service.graph.CompactGraph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Computes the metrics of a user's current graph concurrently and streams each one over SSE as soon
+ * as it is ready. Events: {@code metric} ({@link GraphMetricEventDto}) per value, then {@code complete}
+ * with the whole {@link GraphMetricsDto}, or {@code cancelled} / {@code error}. Cheap metrics arrive
+ * first; the expensive ones poll a cancellation flag, set by {@link #cancel(Long)}, a new stream of
+ * the same user, or the client disconnecting.
+ */
+@Service
+public class GraphMetricsStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(GraphMetricsStreamService.class);
+
+    private final GraphWorkspaceRegistry workspaceRegistry;
+    private final GraphMetricsCalculator calculator;
+    private final ExecutorService metricExecutor;
+    private final long timeoutMillis;
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+
+    public GraphMetricsStreamService(GraphWorkspaceRegistry workspaceRegistry, GraphMetricsCalculator calculator,
+                                     @Value("${pipeline.metrics.stream.concurrency:4}") int concurrency,
+                                     @Value("${pipeline.metrics.stream.timeout-ms:600000}") long timeoutMillis) {
+        this.workspaceRegistry = workspaceRegistry;
+        this.calculator = calculator;
+        this.metricExecutor = Executors.newFixedThreadPool(concurrency);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sessions.values().forEach(Session::cancel);
+        metricExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts streaming the metrics of the user's current graph; empty if the user has no graph.
+     */
+    public Optional<SseEmitter> stream(Long userId) {
+        Optional<RoadGraph> current = workspaceRegistry.getGraph(userId);
+        if (current.isEmpty()) return Optional.empty();
+        RoadGraph graph = current.get();
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Session session = new Session(userId, graph, emitter);
+        Session previous = sessions.put(userId, session);
+        if (previous != null) previous.cancel();
+        emitter.onCompletion(session::cancel);
+        emitter.onTimeout(session::cancel);
+        emitter.onError(_ -> session.cancel());
+
+        Optional<GraphMetricsDto> cached = workspaceRegistry.getCachedMetrics(userId);
+        if (cached.isPresent()) {
+            log.debug("Streaming cached metrics of user {}", userId);
+            session.sendAll(cached.get());
+            session.finish(cached.get());
+        } else {
+            session.start();
+        }
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Cancels the running metrics stream of the user; false if none was running.
+     */
+    public boolean cancel(Long userId) {
+        Session session = sessions.get(userId);
+        if (session == null) return false;
+        session.cancel();
+        return true;
+    }
+
+    /**
+     * One running stream.
+     */
+    private final class Session {
+        private final Long userId;
+        private final RoadGraph graph;
+        private final long version;
+        private final SseEmitter emitter;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final Map<String, Number> values = new ConcurrentHashMap<>();
+        private final List<CompletableFuture<?>> tasks = new ArrayList<>();
+
+        Session(Long userId, RoadGraph graph, SseEmitter emitter) {
+            this.userId = userId;
+            this.graph = graph;
+            this.version = graph.getVersion();
+            this.emitter = emitter;
+        }
+
+        /**
+         * Sends the cheap metrics on the calling thread, so they never queue behind the expensive
+         * metrics of other streams, and submits the expensive ones.
+         */
+        void start() {
+            long start = System.nanoTime();
+            CompactGraph compact;
+            try {
+                send("nodeCount", graph.getNodeCount());
+                send("edgeCount", graph.getEdgeCount());
+                send("avgDegree", graph.getAverageDegree());
+                send("avgEdgeLengthMeters", graph.getAverageEdgeLengthMeters());
+                send("nodeDensityPerKm2", calculator.nodeDensityPerKm2(graph));
+                send("connectedComponents", calculator.connectedComponents(graph));
+                compact = CompactGraph.of(graph);
+            } catch (CancellationException e) {
+                return;
+            }
+
+            synchronized (tasks) {
+                // cancel() sets the flag before it cancels the tasks under this lock
+                if (cancelled.get()) return;
+                tasks.add(CompletableFuture.supplyAsync(() -> send("clusteringCoefficient",
+                        calculator.clusteringCoefficient(compact, cancelled::get)), metricExecutor));
+                tasks.add(CompletableFuture.supplyAsync(() -> {
+                    GraphMetricsCalculator.Eccentricities eccentricities = calculator.eccentricities(compact, cancelled::get);
+                    send("diameterMeters", eccentricities.diameterMeters());
+                    return send("radiusMeters", eccentricities.radiusMeters());
+                }, metricExecutor));
+                tasks.add(CompletableFuture.supplyAsync(() -> send("treewidth",
+                        calculator.treewidth(compact, cancelled::get)), metricExecutor));
+            }
+
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).whenComplete((_, error) -> {
+                if (error == null) {
+                    GraphMetricsDto metrics = toDto();
+                    workspaceRegistry.cacheMetrics(userId, graph, version, metrics);
+                    log.info("Streamed metrics of user {} in {} ms", userId, (System.nanoTime() - start) / 1_000_000);
+                    finish(metrics);
+                } else if (!(unwrap(error) instanceof CancellationException)) {
+                    log.warn("Metrics stream of user {} failed", userId, unwrap(error));
+                    sessions.remove(userId, this);
+                    close("error", unwrap(error).getMessage());
+                }
+            });
+        }
+
+        void cancel() {
+            if (!cancelled.compareAndSet(false, true)) return;
+            sessions.remove(userId, this);
+            synchronized (tasks) {
+                tasks.forEach(task -> task.cancel(false));
+            }
+            if (!finished.get()) {
+                List<String> pending = new ArrayList<>(List.of(
+                        "clusteringCoefficient", "connectedComponents", "diameterMeters", "radiusMeters", "treewidth"));
+                pending.removeAll(values.keySet());
+                log.info("Metrics stream of user {} cancelled, pending: {}", userId, pending);
+                close("cancelled", pending);
+            }
+        }
+
+        void sendAll(GraphMetricsDto metrics) {
+            send("nodeCount", metrics.nodeCount());
+            send("edgeCount", metrics.edgeCount());
+            send("avgDegree", metrics.avgDegree());
+            send("avgEdgeLengthMeters", metrics.avgEdgeLengthMeters());
+            send("nodeDensityPerKm2", metrics.nodeDensityPerKm2());
+            send("clusteringCoefficient", metrics.clusteringCoefficient());
+            send("connectedComponents", metrics.connectedComponents());
+            send("diameterMeters", metrics.diameterMeters());
+            send("radiusMeters", metrics.radiusMeters());
+            send("treewidth", metrics.treewidth());
+        }
+
+        void finish(GraphMetricsDto metrics) {
+            if (finished.compareAndSet(false, true)) {
+                sessions.remove(userId, this);
+                close("complete", metrics);
+            }
+        }
+
+        private Number send(String name, Number value) {
+            if (cancelled.get()) throw new CancellationException();
+            values.put(name, value);
+            try {
+                synchronized (emitter) {
+                    emitter.send(SseEmitter.event().name("metric").data(new GraphMetricEventDto(name, value)));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client is gone
+                cancel();
+                throw new CancellationException();
+            }
+            return value;
+        }
+
+        private void close(String eventName, Object data) {
+            finished.set(true);
+            try {
+                synchronized (emitter) {
+                    emitter.send(SseEmitter.event().name(eventName).data(data));
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Metrics stream of user {} already closed", userId);
+            }
+        }
+
+        private GraphMetricsDto toDto() {
+            return new GraphMetricsDto(
+                    value("nodeCount").intValue(),
+                    value("edgeCount").intValue(),
+                    value("avgDegree").doubleValue(),
+                    value("diameterMeters").doubleValue(),
+                    value("clusteringCoefficient").doubleValue(),
+                    value("avgEdgeLengthMeters").doubleValue(),
+                    value("nodeDensityPerKm2").doubleValue(),
+                    value("connectedComponents").intValue(),
+                    value("radiusMeters").doubleValue(),
+                    value("treewidth").intValue()
+            );
+        }
+
+        private Number value(String name) {
+            return values.getOrDefault(name, 0);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,43 @@
+package sk.master.backend.service.metrics;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated fork-join pool for graph metric engines, so parallel streams inside a metric
+ * computation do not compete with request handling in the common pool.
+ */
+@Component
+public class MetricsExecutor {
+
+    private final ForkJoinPool pool;
+
+    public MetricsExecutor(@Value("${pipeline.metrics.parallelism:0}") int parallelism) {
+        // 0 = one worker per available core
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Runs the action inside the pool; parallel streams started by it use the pool's workers.
+     */
+    public void run(Runnable action) {
+        pool.submit(action).join();
+    }
+
+    public <T> T invoke(Supplier<T> action) {
+        return pool.submit(action::get).join();
+    }
+}
@@ -0,0 +1,313 @@
+package sk.master.backend.service.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sk.master.backend.service.graph.CompactGraph;
+import sk.master.backend.service.graph.DoubleIntHeap;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Treewidth upper bound by greedy vertex elimination. The width of an elimination ordering —
+ * the largest neighbourhood at the moment a node is eliminated — bounds the treewidth from above.
+ * <ul>
+ *   <li>{@link Heuristic#MIN_DEGREE} keeps nodes in degree buckets, so picking the next node is O(1).</li>
+ *   <li>{@link Heuristic#MIN_FILL} picks the node adding the fewest fill edges; usually a tighter
+ *   bound, but clearly slower. It falls back to min-degree when half of the time budget is spent.</li>
+ * </ul>
+ * Adjacency is kept as sorted int arrays. When the time budget or the fill-in memory cap runs out,
+ * the remaining {@code r} nodes are bounded by {@code r - 1} and the result is marked incomplete.
+ * {@link #degeneracy} gives the matching lower bound.
+ */
+@Component
+public class TreewidthEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(TreewidthEngine.class);
+    private static final int BUDGET_CHECK_INTERVAL = 256;
+    private static final long MAX_ADJACENCY_ENTRIES = 20_000_000L; // ~80 MB of fill-in
+
+    public enum Heuristic {
+        MIN_DEGREE, MIN_FILL
+    }
+
+    /**
+     * @param complete false if the elimination was cut short and {@code upperBound} is the weaker {@code r - 1} bound
+     */
+    public record Result(int upperBound, Heuristic heuristic, boolean complete, long millis) {
+    }
+
+    private final Heuristic defaultHeuristic;
+    private final long defaultBudgetMillis;
+
+    public TreewidthEngine(@Value("${pipeline.metrics.treewidth.heuristic:MIN_DEGREE}") Heuristic defaultHeuristic,
+                           @Value("${pipeline.metrics.treewidth.time-budget-ms:10000}") long defaultBudgetMillis) {
+        this.defaultHeuristic = defaultHeuristic;
+        this.defaultBudgetMillis = defaultBudgetMillis;
+    }
+
+    public Result compute(CompactGraph graph) {
+        return compute(graph, defaultHeuristic, defaultBudgetMillis);
+    }
+
+    public Result compute(CompactGraph graph, Heuristic heuristic, long budgetMillis) {
+        return compute(graph, heuristic, budgetMillis, () -> false);
+    }
+
+    public Result compute(CompactGraph graph, BooleanSupplier cancelled) {
+        return compute(graph, defaultHeuristic, defaultBudgetMillis, cancelled);
+    }
+
+    /**
+     * @param cancelled polled with the time budget; the computation ends with {@link CancellationException}
+     */
+    public Result compute(CompactGraph graph, Heuristic heuristic, long budgetMillis, BooleanSupplier cancelled) {
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1_000_000L;
+        Elimination elimination = new Elimination(graph, cancelled);
+        boolean complete = heuristic == Heuristic.MIN_FILL
+                ? elimination.minFill(start + budgetMillis * 500_000L, deadline)
+                : elimination.minDegree(deadline);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        int bound = complete ? elimination.width : Math.max(elimination.width, elimination.remaining - 1);
+        if (complete) {
+            log.info("Treewidth ({}): upper bound {} for {} nodes in {} ms", heuristic, bound, graph.nodeCount(), millis);
+        } else {
+            log.warn("Treewidth ({}): stopped after {} ms with {} of {} nodes left, upper bound {}",
+                    heuristic, millis, elimination.remaining, graph.nodeCount(), bound);
+        }
+        return new Result(bound, heuristic, complete, millis);
+    }
+
+    /**
+     * Degeneracy — the largest minimum degree met while repeatedly removing a minimum-degree node.
+     * Every subgraph of a graph of treewidth {@code k} has a node of degree at most {@code k}, so this
+     * is a lower bound on the treewidth, found in linear time with degree buckets.
+     */
+    public int degeneracy(CompactGraph graph) {
+        int n = graph.nodeCount();
+        int[] degree = new int[n];
+        int maxDegree = 0;
+        for (int v = 0; v < n; v++) {
+            degree[v] = graph.degree(v);
+            maxDegree = Math.max(maxDegree, degree[v]);
+        }
+        // Nodes sorted by degree with bucket starts; a removal swaps a neighbour to the front of its bucket
+        int[] bucketStart = new int[maxDegree + 2];
+        for (int v = 0; v < n; v++) bucketStart[degree[v] + 1]++;
+        for (int d = 0; d <= maxDegree; d++) bucketStart[d + 1] += bucketStart[d];
+        int[] order = new int[n];
+        int[] position = new int[n];
+        int[] fill = Arrays.copyOf(bucketStart, maxDegree + 1);
+        for (int v = 0; v < n; v++) {
+            position[v] = fill[degree[v]]++;
+            order[position[v]] = v;
+        }
+        boolean[] removed = new boolean[n];
+        int degeneracy = 0;
+        for (int i = 0; i < n; i++) {
+            int v = order[i];
+            removed[v] = true;
+            degeneracy = Math.max(degeneracy, degree[v]);
+            for (int a = graph.start(v); a < graph.end(v); a++) {
+                int u = graph.target(a);
+                if (removed[u] || degree[u] <= degree[v]) continue;
+                int first = Math.max(bucketStart[degree[u]], i + 1);
+                int w = order[first];
+                order[first] = u;
+                order[position[u]] = w;
+                position[w] = position[u];
+                position[u] = first;
+                bucketStart[degree[u]] = first + 1;
+                degree[u]--;
+            }
+        }
+        return degeneracy;
+    }
+
+    /**
+     * Mutable elimination graph.
+     */
+    private static final class Elimination {
+        private final int[][] adj;
+        private final int[] degree;
+        private final boolean[] eliminated;
+        private final BooleanSupplier cancelled;
+        private int[] scratch = new int[16];
+        private long adjacencyEntries;
+        private int remaining;
+        private int width;
+
+        // Degree buckets: doubly linked lists of nodes with equal degree
+        private int[] bucketHead;
+        private int[] next;
+        private int[] prev;
+        private int minBucket;
+
+        Elimination(CompactGraph graph, BooleanSupplier cancelled) {
+            int n = graph.nodeCount();
+            this.cancelled = cancelled;
+            this.adj = new int[n][];
+            this.degree = new int[n];
+            this.eliminated = new boolean[n];
+            for (int v = 0; v < n; v++) {
+                int d = graph.degree(v);
+                int[] neighbours = new int[d];
+                for (int i = 0; i < d; i++) neighbours[i] = graph.target(graph.start(v) + i);
+                adj[v] = neighbours;
+                degree[v] = d;
+                adjacencyEntries += d;
+            }
+            this.remaining = n;
+        }
+
+        boolean minDegree(long deadline) {
+            initBuckets();
+            int steps = 0;
+            while (remaining - 1 > width) {
+                if (++steps % BUDGET_CHECK_INTERVAL == 0 && overBudget(deadline)) return false;
+                while (bucketHead[minBucket] == -1) minBucket++;
+                eliminate(bucketHead[minBucket], true);
+            }
+            return true;
+        }
+
+        boolean minFill(long fallbackAt, long deadline) {
+            int n = adj.length;
+            DoubleIntHeap heap = new DoubleIntHeap(n);
+            for (int v = 0; v < n; v++) heap.insertOrDecrease(v, fillKey(v));
+            int[] stamp = new int[n];
+            int round = 0;
+            int steps = 0;
+            while (remaining - 1 > width) {
+                if (++steps % BUDGET_CHECK_INTERVAL == 0) {
+                    checkCancelled();
+                    if (System.nanoTime() > fallbackAt || adjacencyEntries > MAX_ADJACENCY_ENTRIES) {
+                        log.debug("Min-fill over budget with {} nodes left — continuing with min-degree", remaining);
+                        return minDegree(deadline);
+                    }
+                }
+                int v = heap.poll();
+                int[] neighbours = Arrays.copyOf(adj[v], degree[v]);
+                eliminate(v, false);
+
+                // Fill of a node changes only if its neighbourhood or the edges among its neighbours changed
+                round++;
+                for (int u : neighbours) {
+                    if (stamp[u] != round) {
+                        stamp[u] = round;
+                        heap.update(u, fillKey(u));
+                    }
+                    for (int i = 0; i < degree[u]; i++) {
+                        int w = adj[u][i];
+                        if (stamp[w] != round) {
+                            stamp[w] = round;
+                            heap.update(w, fillKey(w));
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void checkCancelled() {
+            if (cancelled.getAsBoolean()) throw new CancellationException("Treewidth computation cancelled");
+        }
+
+        private boolean overBudget(long deadline) {
+            checkCancelled();
+            return System.nanoTime() > deadline || adjacencyEntries > MAX_ADJACENCY_ENTRIES;
+        }
+
+        /**
+         * Fill-in count with the degree as a tie-breaker.
+         */
+        private double fillKey(int v) {
+            int d = degree[v];
+            int[] nv = adj[v];
+            long common = 0;
+            for (int i = 0; i < d; i++) common += intersectionSize(nv, d, adj[nv[i]], degree[nv[i]]);
+            long missingPairs = ((long) d * (d - 1) - common) / 2;
+            return missingPairs * (double) (adj.length + 1) + d;
+        }
+
+        private void eliminate(int v, boolean buckets) {
+            int d = degree[v];
+            width = Math.max(width, d);
+            int[] neighbours = adj[v];
+            if (buckets) unlink(v);
+            for (int i = 0; i < d; i++) {
+                int u = neighbours[i];
+                if (buckets) unlink(u);
+                mergeNeighbourhood(u, v, neighbours, d);
+                if (buckets) link(u);
+            }
+            adjacencyEntries -= d;
+            adj[v] = null;
+            degree[v] = 0;
+            eliminated[v] = true;
+            remaining--;
+        }
+
+        /**
+         * adj[u] := adj[u] ∪ N(v) without u and v; both inputs are sorted.
+         */
+        private void mergeNeighbourhood(int u, int v, int[] nv, int dv) {
+            int[] nu = adj[u];
+            int du = degree[u];
+            if (scratch.length < du + dv) scratch = new int[Math.max(du + dv, scratch.length * 2)];
+            int i = 0, j = 0, k = 0;
+            while (i < du || j < dv) {
+                int x;
+                if (j >= dv || (i < du && nu[i] < nv[j])) x = nu[i++];
+                else if (i >= du || nv[j] < nu[i]) x = nv[j++];
+                else { x = nu[i++]; j++; }
+                if (x != u && x != v) scratch[k++] = x;
+            }
+            if (nu.length < k) adj[u] = nu = new int[Math.max(k, nu.length + nu.length / 2)];
+            System.arraycopy(scratch, 0, nu, 0, k);
+            adjacencyEntries += k - du;
+            degree[u] = k;
+        }
+
+        private static int intersectionSize(int[] a, int la, int[] b, int lb) {
+            int i = 0, j = 0, count = 0;
+            while (i < la && j < lb) {
+                if (a[i] < b[j]) i++;
+                else if (a[i] > b[j]) j++;
+                else { count++; i++; j++; }
+            }
+            return count;
+        }
+
+        private void initBuckets() {
+            int n = adj.length;
+            bucketHead = new int[n + 1];
+            next = new int[n];
+            prev = new int[n];
+            Arrays.fill(bucketHead, -1);
+            minBucket = 0;
+            for (int v = 0; v < n; v++) {
+                if (!eliminated[v]) link(v);
+            }
+        }
+
+        private void link(int v) {
+            int d = degree[v];
+            prev[v] = -1;
+            next[v] = bucketHead[d];
+            if (bucketHead[d] != -1) prev[bucketHead[d]] = v;
+            bucketHead[d] = v;
+            if (d < minBucket) minBucket = d;
+        }
+
+        private void unlink(int v) {
+            if (prev[v] != -1) next[prev[v]] = next[v];
+            else bucketHead[degree[v]] = next[v];
+            if (next[v] != -1) prev[next[v]] = prev[v];
+        }
+    }
+}
@@ -3,14 +3,23 @@ package sk.master.backend.service.placement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import sk.master.backend.persistence.dto.CoverageReportDto;
 import sk.master.backend.persistence.dto.PlacementRequestDto;
 import sk.master.backend.persistence.dto.PlacementResponseDto;
+import sk.master.backend.persistence.dto.StationVerificationRequestDto;
+import sk.master.backend.persistence.dto.StationVerificationResponseDto;
 import sk.master.backend.persistence.model.PlacementAlgorithm;
 import sk.master.backend.persistence.model.PlacementParams;
 import sk.master.backend.persistence.model.PlacementResult;
 import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+import sk.master.backend.service.graph.CompactGraph;
 import sk.master.backend.service.placement.strategy.*;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
 @Service
 public class ChargingStationPlacementServiceImpl implements ChargingStationPlacementService {
 
@@ -19,15 +28,18 @@ public class ChargingStationPlacementServiceImpl implements ChargingStationPlace
     private final RandomStrategy randomStrategy;
     private final GreedyStrategy greedyStrategy;
     private final GraspStrategy graspStrategy;
+    private final CoverageEngine coverageEngine;
 
     public ChargingStationPlacementServiceImpl(
             RandomStrategy randomStrategy,
             GreedyStrategy greedyStrategy,
-            GraspStrategy graspStrategy
+            GraspStrategy graspStrategy,
+            CoverageEngine coverageEngine
     ) {
         this.randomStrategy = randomStrategy;
         this.greedyStrategy = greedyStrategy;
         this.graspStrategy = graspStrategy;
+        this.coverageEngine = coverageEngine;
     }
 
     @Override
@@ -52,7 +64,73 @@ public class ChargingStationPlacementServiceImpl implements ChargingStationPlace
         log.info("Algorithm '{}' finished: selected {} charging stations, value = {}, time = {}ms",
                 request.getAlgorithm(), result.getSelectedNodes().size(), result.getObjectiveValue(), computationTimeMs);
 
-        return PlacementResponseDto.fromResult(result, computationTimeMs);
+        CoverageReportDto coverage = coverageReport(graph, result.getSelectedNodes(), params);
+        return PlacementResponseDto.fromResult(result, computationTimeMs, coverage);
+    }
+
+    @Override
+    public StationVerificationResponseDto verifyStations(RoadGraph graph, StationVerificationRequestDto request) {
+        long startMs = System.currentTimeMillis();
+        CompactGraph compactGraph = CompactGraph.of(graph);
+        int k = request.getK();
+
+        List<String> stationIds = new ArrayList<>();
+        List<String> missingStationIds = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(request.getStationIds())) {
+            if (compactGraph.indexOf(id) >= 0) stationIds.add(id);
+            else missingStationIds.add(id);
+        }
+        int[] stationIndices = stationIds.stream().mapToInt(compactGraph::indexOf).toArray();
+        CoverageEngine.Verification verification = coverageEngine.verify(
+                compactGraph, stationIndices, k, request.getMaxRadiusMeters());
+
+        List<String> uncoveredNodeIds = new ArrayList<>();
+        for (int v = 0; v < compactGraph.nodeCount(); v++) {
+            if (verification.coverage()[v] < k) uncoveredNodeIds.add(compactGraph.node(v).getId());
+        }
+        List<String> redundantStationIds = new ArrayList<>();
+        for (int i = 0; i < stationIds.size(); i++) {
+            if (verification.redundant()[i]) redundantStationIds.add(stationIds.get(i));
+        }
+        long computationTimeMs = System.currentTimeMillis() - startMs;
+
+        log.info("Verified {} stations (k={}, radius={}m) on {} nodes: {} uncovered, {} redundant, {} missing, time = {}ms",
+                stationIds.size(), k, request.getMaxRadiusMeters(), compactGraph.nodeCount(),
+                uncoveredNodeIds.size(), redundantStationIds.size(), missingStationIds.size(), computationTimeMs);
+
+        return new StationVerificationResponseDto(
+                uncoveredNodeIds.isEmpty(),
+                k,
+                request.getMaxRadiusMeters(),
+                compactGraph.nodeCount(),
+                stationIds.size(),
+                uncoveredNodeIds,
+                redundantStationIds,
+                missingStationIds,
+                computationTimeMs
+        );
+    }
+
+    private CoverageReportDto coverageReport(RoadGraph graph, List<RoadNode> stations, PlacementParams params) {
+        CompactGraph compactGraph = CompactGraph.of(graph);
+        int[] stationIndices = stations.stream().mapToInt(node -> compactGraph.indexOf(node.getId())).toArray();
+        double maxRadius = params.getMaxRadiusMeters() != null ? params.getMaxRadiusMeters() : Double.POSITIVE_INFINITY;
+        CoverageEngine.Report report = coverageEngine.report(compactGraph, stationIndices, params.getK(), maxRadius);
+
+        List<CoverageReportDto.StationLoadDto> loads = new ArrayList<>();
+        for (int i = 0; i < stations.size(); i++) {
+            loads.add(new CoverageReportDto.StationLoadDto(stations.get(i).getId(),
+                    report.assignedNodes()[i], report.coveringNodes()[i]));
+        }
+        return new CoverageReportDto(
+                params.getK(),
+                params.getMaxRadiusMeters(),
+                report.coveredFraction(),
+                report.nodeCount() - report.coveredNodes(),
+                report.meanKthDistance(),
+                report.maxKthDistance(),
+                loads
+        );
     }
 
     private PlacementStrategy resolveStrategy(PlacementAlgorithm algorithm) {
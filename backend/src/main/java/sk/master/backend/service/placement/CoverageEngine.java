@@ -0,0 +1,220 @@
+package sk.master.backend.service.placement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import sk.master.backend.service.graph.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * k-coverage quality of a station set in one multi-source search.
+ * <p>
+ * Every station starts its own labels; a node keeps the first {@code k} distinct stations that reach
+ * it within {@code maxRadiusMeters}, which are its {@code k} nearest. A node with {@code k} labels no
+ * longer passes on others: any station it drops has {@code k} closer ones on every path through it,
+ * so the search touches each node at most {@code k} times instead of once per station.
+ * <p>
+ * {@link #verify} checks a given station set with one more label per node than the required coverage.
+ */
+@Component
+public class CoverageEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(CoverageEngine.class);
+
+    /**
+     * @param coverage  number of stations within the radius of every node, capped at {@code k + 1}
+     * @param redundant per station, true if every node it reaches is covered more than {@code k} times, so
+     *                  removing this station alone keeps the coverage of every node at {@code k} or above
+     *                  — each flag assumes all other stations stay
+     */
+    public record Verification(int[] coverage, boolean[] redundant) {
+    }
+
+    /**
+     * @param kthDistances distance of every node to its {@code k}-th nearest station, {@code -1} if not k-covered
+     * @param assignedNodes per station, the nodes for which it is the nearest station
+     * @param coveringNodes per station, the nodes that count it among their {@code k} nearest
+     */
+    public record Report(int coveredNodes, int nodeCount, double meanKthDistance, double maxKthDistance,
+                         double[] kthDistances, int[] assignedNodes, int[] coveringNodes) {
+
+        public double coveredFraction() {
+            return nodeCount == 0 ? 1.0 : (double) coveredNodes / nodeCount;
+        }
+    }
+
+    /**
+     * @param stations node indices; duplicates count once
+     * @param k        at least 1; no node is covered if it exceeds the number of stations
+     */
+    public Report report(CompactGraph graph, int[] stations, int k, double maxRadiusMeters) {
+        if (k < 1) throw new IllegalArgumentException("k must be at least 1, got " + k);
+        long start = System.nanoTime();
+        int n = graph.nodeCount();
+        // A node never holds more labels than there are stations
+        Labels labels = new Labels(graph, Math.min(k, stations.length), maxRadiusMeters);
+        labels.search(stations);
+        int stride = labels.capacity;
+
+        double[] kthDistances = new double[n];
+        int[] assigned = new int[stations.length];
+        int[] covering = new int[stations.length];
+        int covered = 0;
+        double sum = 0.0, max = 0.0;
+        for (int v = 0; v < n; v++) {
+            int count = labels.count[v];
+            if (count > 0) assigned[labels.source[v * stride]]++;
+            for (int i = 0; i < count; i++) covering[labels.source[v * stride + i]]++;
+            if (count == k) {
+                double d = labels.distance[v * stride + k - 1];
+                kthDistances[v] = d;
+                covered++;
+                sum += d;
+                max = Math.max(max, d);
+            } else {
+                kthDistances[v] = -1.0;
+            }
+        }
+        double mean = covered == 0 ? 0.0 : sum / covered;
+        log.info("Coverage report: {}/{} nodes covered {}x within {} m, mean k-th distance {} m, max {} m in {} ms",
+                covered, n, k, maxRadiusMeters, mean, max, (System.nanoTime() - start) / 1_000_000);
+        return new Report(covered, n, mean, max, kthDistances, assigned, covering);
+    }
+
+    /**
+     * The same search with {@code k + 1} labels per node: a node with at most {@code k} labels has all
+     * stations within the radius among them, so removing any of those stations drops its coverage.
+     *
+     * @param stations distinct node indices
+     */
+    public Verification verify(CompactGraph graph, int[] stations, int k, double maxRadiusMeters) {
+        if (k < 1) throw new IllegalArgumentException("k must be at least 1, got " + k);
+        long start = System.nanoTime();
+        int n = graph.nodeCount();
+        Labels labels = new Labels(graph, Math.min(k, stations.length - 1) + 1, maxRadiusMeters);
+        labels.search(stations);
+        int stride = labels.capacity;
+
+        boolean[] needed = new boolean[stations.length];
+        for (int v = 0; v < n; v++) {
+            int count = labels.count[v];
+            if (count > k) continue;
+            for (int i = 0; i < count; i++) needed[labels.source[v * stride + i]] = true;
+        }
+        boolean[] redundant = new boolean[stations.length];
+        for (int i = 0; i < stations.length; i++) redundant[i] = !needed[i];
+        log.info("Coverage verification: {} stations over {} nodes in {} ms",
+                stations.length, n, (System.nanoTime() - start) / 1_000_000);
+        return new Verification(labels.count, redundant);
+    }
+
+    /**
+     * Up to {@code capacity} (station, distance) labels per node in flat arrays, filled by a single
+     * Dijkstra over (node, station) pairs.
+     */
+    private static final class Labels {
+        private final CompactGraph graph;
+        private final int capacity;
+        private final double maxRadius;
+        private final int[] source;
+        private final double[] distance;
+        private final int[] count;
+
+        // Binary heap with lazy deletion: an entry is dropped when popped for a full node or a known station
+        private double[] heapKey = new double[64];
+        private int[] heapNode = new int[64];
+        private int[] heapSource = new int[64];
+        private int heapSize;
+
+        Labels(CompactGraph graph, int capacity, double maxRadius) {
+            int n = graph.nodeCount();
+            if ((long) n * capacity > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException(
+                        "Too many coverage labels: " + n + " nodes x " + capacity + " stations per node");
+            }
+            this.graph = graph;
+            this.capacity = capacity;
+            this.maxRadius = maxRadius;
+            this.source = new int[n * capacity];
+            this.distance = new double[n * capacity];
+            this.count = new int[n];
+        }
+
+        void search(int[] stations) {
+            boolean[] seen = new boolean[graph.nodeCount()];
+            for (int i = 0; i < stations.length; i++) {
+                if (seen[stations[i]]) continue;
+                seen[stations[i]] = true;
+                push(0.0, stations[i], i);
+            }
+            while (heapSize > 0) {
+                double d = heapKey[0];
+                int v = heapNode[0];
+                int s = heapSource[0];
+                pop();
+                if (count[v] == capacity || hasLabel(v, s)) continue;
+                source[v * capacity + count[v]] = s;
+                distance[v * capacity + count[v]] = d;
+                count[v]++;
+                for (int a = graph.start(v), end = graph.end(v); a < end; a++) {
+                    int w = graph.target(a);
+                    double dw = d + graph.weight(a);
+                    if (dw <= maxRadius && count[w] < capacity && !hasLabel(w, s)) push(dw, w, s);
+                }
+            }
+        }
+
+        private boolean hasLabel(int v, int s) {
+            for (int i = v * capacity, end = v * capacity + count[v]; i < end; i++) {
+                if (source[i] == s) return true;
+            }
+            return false;
+        }
+
+        private void push(double key, int node, int src) {
+            if (heapSize == heapKey.length) {
+                int capacity = heapKey.length * 2;
+                heapKey = Arrays.copyOf(heapKey, capacity);
+                heapNode = Arrays.copyOf(heapNode, capacity);
+                heapSource = Arrays.copyOf(heapSource, capacity);
+            }
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heapKey[parent] <= key) break;
+                move(parent, i);
+                i = parent;
+            }
+            heapKey[i] = key;
+            heapNode[i] = node;
+            heapSource[i] = src;
+        }
+
+        private void pop() {
+            int last = --heapSize;
+            if (last == 0) return;
+            double key = heapKey[last];
+            int node = heapNode[last];
+            int src = heapSource[last];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= last) break;
+                if (child + 1 < last && heapKey[child + 1] < heapKey[child]) child++;
+                if (heapKey[child] >= key) break;
+                move(child, i);
+                i = child;
+            }
+            heapKey[i] = key;
+            heapNode[i] = node;
+            heapSource[i] = src;
+        }
+
+        private void move(int from, int to) {
+            heapKey[to] = heapKey[from];
+            heapNode[to] = heapNode[from];
+            heapSource[to] = heapSource[from];
+        }
+    }
+}
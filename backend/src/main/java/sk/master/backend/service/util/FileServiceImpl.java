@@ -2,13 +2,14 @@ package sk.master.backend.service.util;
 
 import io.jenetics.jpx.GPX;
 import io.jenetics.jpx.Metadata;
+import io.micrometer.core.instrument.Timer;
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import sk.master.backend.persistence.model.PositionalData;
+import sk.master.backend.persistence.model.TrajectoryBatch;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.json.JsonMapper;
 
@@ -18,7 +19,6 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -29,15 +29,24 @@ public class FileServiceImpl implements FileService {
     private static final PathMatchingResourcePatternResolver resourceResolver =
             new PathMatchingResourcePatternResolver();
 
+    private final PipelineMetrics pipelineMetrics;
+
+    public FileServiceImpl(PipelineMetrics pipelineMetrics) {
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
     @Override
-    public List<PositionalData> parseFile(MultipartFile file) throws Exception {
+    public TrajectoryBatch parseFile(MultipartFile file) throws Exception {
         String fileExtension = FilenameUtils.getExtension(file.getOriginalFilename());
-        return switch (fileExtension) {
+        Timer.Sample sample = pipelineMetrics.startSample();
+        TrajectoryBatch batch = switch (fileExtension) {
             case "gpx" -> parseGpxStream(file.getInputStream());
             case "geojson", "json" -> parseGeoJsonStream(file.getInputStream());
             case "csv" -> parseCsvStream(file.getInputStream());
             case null, default -> throw new IllegalArgumentException("Unsupported file format: " + fileExtension);
         };
+        recordParse(sample, batch);
+        return batch;
     }
 
     @Override
@@ -50,7 +59,7 @@ public class FileServiceImpl implements FileService {
     }
 
     @Override
-    public List<PositionalData> parseSampleFile(String filename) throws Exception {
+    public TrajectoryBatch parseSampleFile(String filename) throws Exception {
         if (filename.contains("/") || filename.contains("\\") || filename.contains("..")) {
             throw new IllegalArgumentException("Invalid filename");
         }
@@ -59,17 +68,25 @@ public class FileServiceImpl implements FileService {
             throw new IllegalArgumentException("Sample file not found: " + filename);
         }
         String extension = FilenameUtils.getExtension(filename);
+        Timer.Sample sample = pipelineMetrics.startSample();
         try (InputStream inputStream = resource.getInputStream()) {
-            return switch (extension) {
+            TrajectoryBatch batch = switch (extension) {
                 case "gpx" -> parseGpxStream(inputStream);
                 case "geojson", "json" -> parseGeoJsonStream(inputStream);
                 case "csv" -> parseCsvStream(inputStream);
                 default -> throw new IllegalArgumentException("Unsupported file format: " + extension);
             };
+            recordParse(sample, batch);
+            return batch;
         }
     }
 
-    private List<PositionalData> parseGpxStream(InputStream inputStream) throws Exception {
+    private void recordParse(Timer.Sample sample, TrajectoryBatch batch) {
+        pipelineMetrics.stopStage(sample, PipelineMetrics.STAGE_PARSE);
+        pipelineMetrics.recordPointsIn(batch.size());
+    }
+
+    private TrajectoryBatch parseGpxStream(InputStream inputStream) throws Exception {
         try {
             GPX gpx = GPX.Reader.of(GPX.Reader.Mode.LENIENT).read(inputStream);
 
@@ -77,7 +94,7 @@ public class FileServiceImpl implements FileService {
                     .flatMap(Metadata::getTime)
                     .orElse(null);
 
-            List<PositionalData> result = new ArrayList<>();
+            TrajectoryBatch result = new TrajectoryBatch();
             // Use an array to allow mutation inside the lambda expressions
             int[] tripCounter = {1};
 
@@ -85,12 +102,12 @@ public class FileServiceImpl implements FileService {
                 gpx.tracks().forEach(track -> track.segments().forEach(segment -> {
                     int currentTripId = tripCounter[0];
 
-                    segment.points().forEach(point -> result.add(new PositionalData(
+                    segment.points().forEach(point -> result.add(
                             point.getLatitude().doubleValue(),
                             point.getLongitude().doubleValue(),
                             point.getTime().orElse(metadataTime),
                             currentTripId
-                    )));
+                    ));
 
                     // Increment trip ID for the next segment (a new continuous drive)
                     tripCounter[0]++;
@@ -103,7 +120,7 @@ public class FileServiceImpl implements FileService {
         }
     }
 
-    private List<PositionalData> parseCsvStream(InputStream inputStream) throws Exception {
+    private TrajectoryBatch parseCsvStream(InputStream inputStream) throws Exception {
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
             String headerLine = reader.readLine();
             if (headerLine == null) throw new Exception("CSV file is empty");
@@ -123,7 +140,7 @@ public class FileServiceImpl implements FileService {
             if (latCol == -1 || lonCol == -1)
                 throw new IllegalArgumentException("CSV file missing required lat/lon columns");
 
-            List<PositionalData> result = new ArrayList<>();
+            TrajectoryBatch result = new TrajectoryBatch();
             String line;
             while ((line = reader.readLine()) != null) {
                 line = line.trim();
@@ -134,9 +151,9 @@ public class FileServiceImpl implements FileService {
                 double lat = Double.parseDouble(tokens[latCol].trim());
                 double lon = Double.parseDouble(tokens[lonCol].trim());
 
-                Instant timeStamp = null;
+                long timeStamp = TrajectoryBatch.NO_TIMESTAMP;
                 if (tsCol != -1 && tsCol < tokens.length && !tokens[tsCol].trim().isEmpty()) {
-                    try { timeStamp = Instant.parse(tokens[tsCol].trim()); } catch (Exception ignored) {}
+                    try { timeStamp = Instant.parse(tokens[tsCol].trim()).toEpochMilli(); } catch (Exception ignored) {}
                 }
 
                 int tripId = 1;
@@ -144,7 +161,7 @@ public class FileServiceImpl implements FileService {
                     try { tripId = Integer.parseInt(tokens[tripCol].trim()); } catch (Exception ignored) {}
                 }
 
-                result.add(new PositionalData(lat, lon, timeStamp, tripId));
+                result.add(lat, lon, timeStamp, tripId);
             }
 
             if (result.isEmpty()) throw new Exception("No GPS points found in CSV file");
@@ -154,11 +171,11 @@ public class FileServiceImpl implements FileService {
         }
     }
 
-    private List<PositionalData> parseGeoJsonStream(InputStream inputStream) {
+    private TrajectoryBatch parseGeoJsonStream(InputStream inputStream) {
         JsonMapper mapper = JsonMapper.builder().build();
         JsonNode root = mapper.readTree(inputStream);
 
-        List<PositionalData> result = new ArrayList<>();
+        TrajectoryBatch result = new TrajectoryBatch();
         int defaultTripId = 1;
 
         for (JsonNode feature : root.get("features")) {
@@ -172,7 +189,7 @@ public class FileServiceImpl implements FileService {
             // Check if the GeoJSON properties contain a trip identifier
             int tripId = props.has("trip_id") ? props.get("trip_id").asInt() : defaultTripId;
 
-            result.add(new PositionalData(lat, lon, timestamp, tripId));
+            result.add(lat, lon, timestamp, tripId);
         }
 
         return result;
@@ -8,7 +8,9 @@ import org.springframework.transaction.annotation.Transactional;
 import sk.master.backend.persistence.dto.PipelineConfigDto;
 import sk.master.backend.persistence.entity.PipelineConfigEntity;
 import sk.master.backend.persistence.model.PipelineConfig;
+import sk.master.backend.persistence.model.ConstructionEngine;
 import sk.master.backend.persistence.model.PlacementAlgorithm;
+import sk.master.backend.persistence.model.TrajectoryInsertionMode;
 import sk.master.backend.persistence.repository.PipelineConfigRepository;
 import sk.master.backend.persistence.repository.UserRepository;
 
@@ -79,6 +81,8 @@ public class PipelineConfigServiceImpl implements PipelineConfigService {
             userConfig.setName(defaultConfig.getName());
             userConfig.setActive(true);
             userConfig.setMaxSpeedKmh(defaultConfig.getMaxSpeedKmh());
+            userConfig.setThinningMinDistanceMeters(defaultConfig.getThinningMinDistanceMeters());
+            userConfig.setThinningMinIntervalSeconds(defaultConfig.getThinningMinIntervalSeconds());
             userConfig.setH3DedupResolution(defaultConfig.getH3DedupResolution());
             userConfig.setKDominatingSet(defaultConfig.getKDominatingSet());
             userConfig.setMaxRadiusMeters(defaultConfig.getMaxRadiusMeters());
@@ -88,6 +92,12 @@ public class PipelineConfigServiceImpl implements PipelineConfigService {
             userConfig.setCityCountry(defaultConfig.getCityCountry());
             userConfig.setRetainLargestComponentPercent(defaultConfig.getRetainLargestComponentPercent());
             userConfig.setCityBoundaryBufferMeters(defaultConfig.getCityBoundaryBufferMeters());
+            userConfig.setSimplifyToleranceMeters(defaultConfig.getSimplifyToleranceMeters());
+            userConfig.setInsertionMode(defaultConfig.getInsertionMode());
+            userConfig.setSnapToleranceMeters(defaultConfig.getSnapToleranceMeters());
+            userConfig.setConstructionEngine(defaultConfig.getConstructionEngine());
+            userConfig.setRasterCellMeters(defaultConfig.getRasterCellMeters());
+            userConfig.setRasterMinDensity(defaultConfig.getRasterMinDensity());
             userConfig.setLastAlgorithm(defaultConfig.getLastAlgorithm());
 
             userConfig = repository.save(userConfig);
@@ -102,6 +112,8 @@ public class PipelineConfigServiceImpl implements PipelineConfigService {
         return new PipelineConfigDto(
                 e.getId(), e.getName(),
                 e.getMaxSpeedKmh(),
+                e.getThinningMinDistanceMeters(),
+                e.getThinningMinIntervalSeconds(),
                 e.getH3DedupResolution(),
                 e.getKDominatingSet(),
                 e.getMaxRadiusMeters(),
@@ -111,6 +123,12 @@ public class PipelineConfigServiceImpl implements PipelineConfigService {
                 e.getCityCountry(),
                 e.getRetainLargestComponentPercent(),
                 e.getCityBoundaryBufferMeters(),
+                e.getSimplifyToleranceMeters(),
+                e.getInsertionMode(),
+                e.getSnapToleranceMeters(),
+                e.getConstructionEngine(),
+                e.getRasterCellMeters(),
+                e.getRasterMinDensity(),
                 e.getLastAlgorithm()
         );
     }
@@ -118,6 +136,8 @@ public class PipelineConfigServiceImpl implements PipelineConfigService {
     private void updateEntityFromDto(PipelineConfigEntity e, PipelineConfigDto d) {
         if (d.getName() != null) e.setName(d.getName());
         e.setMaxSpeedKmh(d.getMaxSpeedKmh());
+        e.setThinningMinDistanceMeters(d.getThinningMinDistanceMeters());
+        e.setThinningMinIntervalSeconds(d.getThinningMinIntervalSeconds());
         e.setH3DedupResolution(d.getH3DedupResolution());
         e.setKDominatingSet(d.getKDominatingSet());
         e.setMaxRadiusMeters(d.getMaxRadiusMeters());
@@ -127,16 +147,30 @@ public class PipelineConfigServiceImpl implements PipelineConfigService {
         e.setCityCountry(d.getCityCountry());
         e.setRetainLargestComponentPercent(d.getRetainLargestComponentPercent());
         e.setCityBoundaryBufferMeters(d.getCityBoundaryBufferMeters());
+        e.setSimplifyToleranceMeters(d.getSimplifyToleranceMeters());
+        if (d.getInsertionMode() != null) e.setInsertionMode(d.getInsertionMode());
+        e.setSnapToleranceMeters(d.getSnapToleranceMeters());
+        if (d.getConstructionEngine() != null) e.setConstructionEngine(d.getConstructionEngine());
+        e.setRasterCellMeters(d.getRasterCellMeters());
+        e.setRasterMinDensity(d.getRasterMinDensity());
         if (d.getLastAlgorithm() != null) e.setLastAlgorithm(d.getLastAlgorithm());
     }
 
     private PipelineConfig toPipelineConfig(PipelineConfigEntity e) {
         return new PipelineConfig(
                 e.getMaxSpeedKmh(),
+                e.getThinningMinDistanceMeters(),
+                e.getThinningMinIntervalSeconds(),
                 e.getH3DedupResolution(),
                 e.getCityCountry(),
                 e.getRetainLargestComponentPercent(),
-                e.getCityBoundaryBufferMeters()
+                e.getCityBoundaryBufferMeters(),
+                e.getSimplifyToleranceMeters(),
+                e.getInsertionMode(),
+                e.getSnapToleranceMeters(),
+                e.getConstructionEngine(),
+                e.getRasterCellMeters(),
+                e.getRasterMinDensity()
         );
     }
 
@@ -148,6 +182,8 @@ public class PipelineConfigServiceImpl implements PipelineConfigService {
         e.setActive(true);
         e.setUserId(null);
         e.setMaxSpeedKmh(200);
+        e.setThinningMinDistanceMeters(10.0);
+        e.setThinningMinIntervalSeconds(0.0);
         e.setH3DedupResolution(12);
         e.setKDominatingSet(2);
         e.setMaxRadiusMeters(1000.0);
@@ -157,6 +193,12 @@ public class PipelineConfigServiceImpl implements PipelineConfigService {
         e.setCityCountry(null);
         e.setRetainLargestComponentPercent(2.0);
         e.setCityBoundaryBufferMeters(100.0);
+        e.setSimplifyToleranceMeters(5.0);
+        e.setInsertionMode(TrajectoryInsertionMode.MATCHED_POINTS);
+        e.setSnapToleranceMeters(3.0);
+        e.setConstructionEngine(ConstructionEngine.MAP_MATCHING);
+        e.setRasterCellMeters(5.0);
+        e.setRasterMinDensity(3);
         e.setLastAlgorithm(PlacementAlgorithm.RANDOM_STRATEGY);
     }
 }
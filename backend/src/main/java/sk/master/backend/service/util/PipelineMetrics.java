@@ -0,0 +1,135 @@
+package sk.master.backend.service.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import sk.master.backend.persistence.model.RoadGraph;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation of the import pipeline, scraped from {@code /actuator/prometheus}.
+ * Stage timers share the {@code pipeline.stage} name and differ in the {@code stage} tag.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String STAGE_PARSE = "parse";
+    public static final String STAGE_PREPROCESS = "preprocess";
+    public static final String STAGE_INSERT = "insert";
+    public static final String STAGE_MERGE = "h3_merge";
+    public static final String STAGE_RASTER = "density_raster";
+
+    private final MeterRegistry registry;
+    private final Timer tripMatchTimer;
+    private final Counter pointsIn;
+    private final Counter pointsOut;
+    private final Counter matchFailures;
+    private final Counter offRoadFallbacks;
+    private final Counter precheckSkipped;
+    private final Counter precheckPassed;
+    private final Counter slowTrips;
+    private final AtomicLong lastGraphNodes = new AtomicLong();
+    private final AtomicLong lastGraphEdges = new AtomicLong();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.tripMatchTimer = Timer.builder("pipeline.matching.trip")
+                .description("Map matching time per trip")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.pointsIn = Counter.builder("pipeline.points.in")
+                .description("GPS points parsed from uploaded files")
+                .register(registry);
+        this.pointsOut = Counter.builder("pipeline.points.out")
+                .description("GPS points left after preprocessing")
+                .register(registry);
+        this.matchFailures = Counter.builder("pipeline.matching.failures")
+                .description("Map matching windows that could not be matched")
+                .register(registry);
+        this.offRoadFallbacks = Counter.builder("pipeline.matching.offroad.fallbacks")
+                .description("Trip segments inserted as raw off-road points")
+                .register(registry);
+        this.precheckSkipped = Counter.builder("pipeline.matching.offroad.precheck")
+                .description("Trips checked against the road index before map matching")
+                .tag("result", "skipped")
+                .register(registry);
+        this.precheckPassed = Counter.builder("pipeline.matching.offroad.precheck")
+                .description("Trips checked against the road index before map matching")
+                .tag("result", "matched")
+                .register(registry);
+        this.slowTrips = Counter.builder("pipeline.matching.slow.trips")
+                .description("Trips whose map matching exceeded the slow-trip threshold")
+                .register(registry);
+        Gauge.builder("pipeline.graph.nodes", lastGraphNodes, AtomicLong::get)
+                .description("Nodes of the last constructed graph")
+                .register(registry);
+        Gauge.builder("pipeline.graph.edges", lastGraphEdges, AtomicLong::get)
+                .description("Edges of the last constructed graph")
+                .register(registry);
+    }
+
+    public <T> T timeStage(String stage, Supplier<T> action) {
+        return stageTimer(stage).record(action);
+    }
+
+    public void timeStage(String stage, Runnable action) {
+        stageTimer(stage).record(action);
+    }
+
+    public void recordStage(String stage, long nanos) {
+        stageTimer(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer.Sample startSample() {
+        return Timer.start(registry);
+    }
+
+    public void stopStage(Timer.Sample sample, String stage) {
+        sample.stop(stageTimer(stage));
+    }
+
+    public <T> T timeTripMatching(Supplier<T> action) {
+        return tripMatchTimer.record(action);
+    }
+
+    public void recordPointsIn(long count) {
+        pointsIn.increment(count);
+    }
+
+    public void recordPointsOut(long count) {
+        pointsOut.increment(count);
+    }
+
+    public void recordMatchFailure() {
+        matchFailures.increment();
+    }
+
+    public void recordOffRoadFallback() {
+        offRoadFallbacks.increment();
+    }
+
+    public void recordOffRoadPrecheck(boolean skipped) {
+        (skipped ? precheckSkipped : precheckPassed).increment();
+    }
+
+    public void recordSlowTrip() {
+        slowTrips.increment();
+    }
+
+    public void recordGraphSize(RoadGraph graph) {
+        lastGraphNodes.set(graph.getNodeCount());
+        lastGraphEdges.set(graph.getEdgeCount());
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("pipeline.stage")
+                .description("Duration of an import pipeline stage")
+                .tag("stage", stage)
+                .register(registry);
+    }
+}
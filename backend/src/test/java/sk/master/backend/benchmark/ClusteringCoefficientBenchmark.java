@@ -0,0 +1,105 @@
+package sk.master.backend.benchmark;
+
+import org.jgrapht.alg.scoring.ClusteringCoefficient;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import sk.master.backend.persistence.dto.GraphDto;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+import sk.master.backend.service.graph.CompactGraph;
+import sk.master.backend.service.metrics.ClusteringCoefficientEngine;
+import sk.master.backend.service.metrics.MetricsExecutor;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares jgrapht's {@link ClusteringCoefficient} with {@link ClusteringCoefficientEngine} on a city-sized graph.
+ * <p>
+ * {@code -Dbenchmark.graph=<file>} loads a {@link GraphDto} JSON, e.g. a 200k-node OSM city graph as returned
+ * by {@code /api/graph/city-import}. Without it, a perturbed 448×448 street grid (~200k nodes) with missing
+ * segments and random diagonals stands in for the city.
+ * <p>
+ * Run with {@code ./mvnw test-compile exec:java -Dexec.mainClass=sk.master.backend.benchmark.ClusteringCoefficientBenchmark
+ * -Dexec.classpathScope=test} or directly from the IDE.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class ClusteringCoefficientBenchmark {
+
+    private static final int GRID_SIZE = 448;
+
+    private RoadGraph roadGraph;
+    private CompactGraph compactGraph;
+    private MetricsExecutor executor;
+    private ClusteringCoefficientEngine engine;
+
+    @Setup
+    public void setUp() {
+        String graphFile = System.getProperty("benchmark.graph");
+        roadGraph = graphFile != null
+                ? RoadGraph.fromDto(JsonMapper.builder().build().readValue(new File(graphFile), GraphDto.class))
+                : syntheticCity();
+        compactGraph = CompactGraph.of(roadGraph);
+        executor = new MetricsExecutor(0);
+        engine = new ClusteringCoefficientEngine(executor);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public double jgrapht() {
+        return new ClusteringCoefficient<>(roadGraph.getGraph()).getAverageClusteringCoefficient();
+    }
+
+    @Benchmark
+    public double engine() {
+        return engine.compute(compactGraph).averageCoefficient();
+    }
+
+    @Benchmark
+    public double engineWithSnapshot() {
+        return engine.compute(CompactGraph.of(roadGraph)).averageCoefficient();
+    }
+
+    private static RoadGraph syntheticCity() {
+        Random random = new Random(42);
+        RoadGraph graph = new RoadGraph();
+        RoadNode[][] nodes = new RoadNode[GRID_SIZE][GRID_SIZE];
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int y = 0; y < GRID_SIZE; y++) {
+                double lat = 48.10 + x * 0.0008 + random.nextGaussian() * 0.0001;
+                double lon = 17.05 + y * 0.0012 + random.nextGaussian() * 0.0001;
+                nodes[x][y] = new RoadNode(x + "_" + y, lat, lon);
+                graph.addNode(nodes[x][y]);
+            }
+        }
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int y = 0; y < GRID_SIZE; y++) {
+                if (x + 1 < GRID_SIZE && random.nextDouble() < 0.85) graph.addEdge(nodes[x][y], nodes[x + 1][y], 90);
+                if (y + 1 < GRID_SIZE && random.nextDouble() < 0.85) graph.addEdge(nodes[x][y], nodes[x][y + 1], 90);
+                if (x + 1 < GRID_SIZE && y + 1 < GRID_SIZE && random.nextDouble() < 0.1) {
+                    graph.addEdge(nodes[x][y], nodes[x + 1][y + 1], 127);
+                }
+            }
+        }
+        return graph;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ClusteringCoefficientBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,105 @@
+package sk.master.backend.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import sk.master.backend.persistence.model.GeoMath;
+import sk.master.backend.persistence.model.RoadNode;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former per-service haversine with {@link GeoMath} on short road segments
+ * (consecutive points 5–150 m apart, as produced by map matching and city import).
+ * <p>
+ * Run with {@code ./mvnw test-compile exec:java -Dexec.mainClass=sk.master.backend.benchmark.GeoMathBenchmark
+ * -Dexec.classpathScope=test} or directly from the IDE.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeoMathBenchmark {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
+
+    @Param({"10000"})
+    private int points;
+
+    private double[] lats;
+    private double[] lons;
+    private RoadNode[] nodes;
+    private double[] out;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        lats = new double[points];
+        lons = new double[points];
+        nodes = new RoadNode[points];
+        out = new double[points - 1];
+
+        // Random walk around Bratislava
+        double lat = 48.1486, lon = 17.1077;
+        for (int i = 0; i < points; i++) {
+            double step = 5 + random.nextDouble() * 145;
+            double bearing = random.nextDouble() * 2 * Math.PI;
+            lat += Math.toDegrees(step * Math.cos(bearing) / EARTH_RADIUS_METERS);
+            lon += Math.toDegrees(step * Math.sin(bearing) / EARTH_RADIUS_METERS) / Math.cos(Math.toRadians(lat));
+            lats[i] = lat;
+            lons[i] = lon;
+            nodes[i] = new RoadNode(lat, lon);
+        }
+    }
+
+    @Benchmark
+    public void legacyHaversine(Blackhole bh) {
+        for (int i = 1; i < points; i++) {
+            bh.consume(legacyHaversineDistance(lats[i - 1], lons[i - 1], lats[i], lons[i]));
+        }
+    }
+
+    @Benchmark
+    public void geoMathDegrees(Blackhole bh) {
+        for (int i = 1; i < points; i++) {
+            bh.consume(GeoMath.distance(lats[i - 1], lons[i - 1], lats[i], lons[i]));
+        }
+    }
+
+    @Benchmark
+    public void geoMathCachedNodes(Blackhole bh) {
+        for (int i = 1; i < points; i++) {
+            bh.consume(GeoMath.distance(nodes[i - 1], nodes[i]));
+        }
+    }
+
+    @Benchmark
+    public double[] geoMathBatch() {
+        GeoMath.segmentLengths(lats, lons, out);
+        return out;
+    }
+
+    /**
+     * Copy of the haversine previously duplicated in GpsGraphConstructionService and OsmCityGraphService.
+     */
+    private static double legacyHaversineDistance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_METERS * c;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GeoMathBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
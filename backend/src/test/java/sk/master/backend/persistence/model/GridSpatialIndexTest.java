@@ -0,0 +1,121 @@
+package sk.master.backend.persistence.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GridSpatialIndexTest {
+
+    // Small cells, so every query spans several of them
+    private static final double CELL_METERS = 20.0;
+
+    @Test
+    void graphQueriesMatchLinearScanAfterInsertsAndRemoves() {
+        // Around the equator and the prime meridian, so cells with negative indices are crossed as well
+        for (double[] center : new double[][]{{0.0, 0.0}, {-33.45, -70.66}, {48.15, 17.11}}) {
+            Random random = new Random(Double.hashCode(center[0]));
+            RoadGraph graph = new RoadGraph(() -> new GridSpatialIndex(CELL_METERS));
+            List<RoadNode> nodes = new ArrayList<>();
+            int id = 0;
+            for (int i = 0; i < 300; i++) nodes.add(addNode(graph, random, center, id++));
+            // Several nodes in one cell exercise the swap with the last element on removal
+            for (int i = 0; i < 6; i++) {
+                RoadNode twin = new RoadNode("twin" + i, center[0] + 1e-6 * i, center[1] - 1e-6 * i);
+                graph.addNode(twin);
+                nodes.add(twin);
+            }
+            assertSameAsLinearScan(graph, random, center);
+
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < 60; i++) graph.removeNode(nodes.remove(random.nextInt(nodes.size())));
+                for (int i = 0; i < 40; i++) nodes.add(addNode(graph, random, center, id++));
+                assertSameAsLinearScan(graph, random, center);
+            }
+        }
+    }
+
+    @Test
+    void candidatesCoverTheBoxWhetherProbedOrScanned() {
+        Random random = new Random(11);
+        GridSpatialIndex index = new GridSpatialIndex(CELL_METERS);
+        List<RoadNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            RoadNode node = new RoadNode("n" + i, -0.002 + random.nextDouble() * 0.004, -0.002 + random.nextDouble() * 0.004);
+            index.insert(node);
+            nodes.add(node);
+        }
+        for (int i = 0; i < 50; i++) index.remove(nodes.remove(random.nextInt(nodes.size())));
+        index.remove(new RoadNode("absent", 0.0, 0.0));
+        assertEquals(nodes.size(), index.size());
+
+        // A box of a few cells is probed cell by cell, one far larger than the occupied cells is scanned
+        for (double half : new double[]{0.0003, 0.05}) {
+            for (int q = 0; q < 50; q++) {
+                double lat = -0.002 + random.nextDouble() * 0.004, lon = -0.002 + random.nextDouble() * 0.004;
+                double minLat = lat - half, maxLat = lat + half, minLon = lon - half, maxLon = lon + half;
+                List<RoadNode> candidates = new ArrayList<>();
+                index.forEachCandidate(minLat, minLon, maxLat, maxLon, candidates::add);
+
+                Set<String> seen = new HashSet<>();
+                for (RoadNode node : candidates) assertTrue(seen.add(node.getId()), "reported twice: " + node.getId());
+                for (RoadNode node : nodes) {
+                    boolean inside = node.getLat() >= minLat && node.getLat() <= maxLat
+                            && node.getLon() >= minLon && node.getLon() <= maxLon;
+                    if (inside) assertTrue(seen.contains(node.getId()), "missed " + node.getId());
+                }
+                Set<String> live = new HashSet<>();
+                nodes.forEach(node -> live.add(node.getId()));
+                assertTrue(live.containsAll(seen), "removed node reported");
+            }
+        }
+    }
+
+    private static void assertSameAsLinearScan(RoadGraph graph, Random random, double[] center) {
+        for (int q = 0; q < 100; q++) {
+            double lat = center[0] + (random.nextDouble() - 0.5) * 0.01;
+            double lon = center[1] + (random.nextDouble() - 0.5) * 0.01;
+            // Up to 2 km, beyond the occupied area, so both the probing and the scanning path are taken
+            double radius = random.nextInt(4) == 0 ? 2000.0 : 5 + random.nextDouble() * 150;
+
+            List<String> expected = new ArrayList<>();
+            double nearest = Double.POSITIVE_INFINITY;
+            for (RoadNode node : graph.getNodes()) {
+                double d = GeoMath.distance(lat, lon, node.getLat(), node.getLon());
+                if (d <= radius) {
+                    expected.add(node.getId());
+                    nearest = Math.min(nearest, d);
+                }
+            }
+
+            List<RoadNode> within = graph.findWithinRadius(lat, lon, radius);
+            assertEquals(new HashSet<>(expected), new HashSet<>(within.stream().map(RoadNode::getId).toList()));
+            for (int i = 1; i < within.size(); i++) {
+                assertTrue(distance(lat, lon, within.get(i - 1)) <= distance(lat, lon, within.get(i)));
+            }
+
+            Optional<RoadNode> found = graph.findNearest(lat, lon, radius);
+            assertEquals(expected.isEmpty(), found.isEmpty());
+            if (found.isPresent()) assertEquals(nearest, distance(lat, lon, found.get()));
+        }
+    }
+
+    private static RoadNode addNode(RoadGraph graph, Random random, double[] center, int id) {
+        // About 800 m across, centred on the query area
+        RoadNode node = new RoadNode("n" + id, center[0] + (random.nextDouble() - 0.5) * 0.008,
+                center[1] + (random.nextDouble() - 0.5) * 0.008);
+        graph.addNode(node);
+        return node;
+    }
+
+    private static double distance(double lat, double lon, RoadNode node) {
+        return GeoMath.distance(lat, lon, node.getLat(), node.getLon());
+    }
+}
@@ -0,0 +1,149 @@
+package sk.master.backend.service.construct;
+
+import org.junit.jupiter.api.Test;
+import sk.master.backend.persistence.model.ConstructionEngine;
+import sk.master.backend.persistence.model.GeoMath;
+import sk.master.backend.persistence.model.PipelineConfig;
+import sk.master.backend.persistence.model.PositionalData;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DensityRasterGraphBuilderTest {
+
+    private static final double ORIGIN_LAT = 48.15;
+    private static final double ORIGIN_LON = 17.11;
+    private static final double METERS_PER_DEGREE = GeoMath.EARTH_RADIUS_METERS * Math.PI / 180.0;
+    // Lateral GPS noise of every synthetic point, in meters either side of the road
+    private static final double NOISE_METERS = 2.0;
+    // A road end may shrink by the thinning and the spur pruning, a few cells of 5 m
+    private static final double END_TOLERANCE_METERS = 25.0;
+
+    private final DensityRasterGraphBuilder builder = new DensityRasterGraphBuilder(new TrajectorySimplifier());
+    private final PipelineConfig config = new PipelineConfig(130, 0, 0, 0, null, 0, 0, 0, null, 0,
+            ConstructionEngine.DENSITY_RASTER, 5.0, 3);
+
+    @Test
+    void straightRoadBecomesOneChain() {
+        Random random = new Random(1);
+        List<List<PositionalData>> trips = new ArrayList<>();
+        for (int t = 0; t < 5; t++) trips.add(trip(random, 0, 0, 300, 0));
+
+        RoadGraph graph = builder.build(trips, config);
+        assertEquals(1, graph.getComponentCount());
+        assertEquals(0, countDegree(graph, 3));
+        assertEquals(1, chainCount(graph));
+        assertDeadEndsNear(graph, new double[][]{{0, 0}, {300, 0}});
+    }
+
+    @Test
+    void tJunctionBecomesThreeChainsAtOneJunction() {
+        Random random = new Random(2);
+        List<List<PositionalData>> trips = new ArrayList<>();
+        for (int t = 0; t < 5; t++) trips.add(trip(random, 0, 0, 400, 0));
+        for (int t = 0; t < 5; t++) trips.add(trip(random, 200, 0, 200, 200));
+
+        RoadGraph graph = builder.build(trips, config);
+        assertEquals(1, graph.getComponentCount());
+        assertEquals(1, countDegree(graph, 3));
+        assertEquals(0, countDegree(graph, 4));
+        assertEquals(3, chainCount(graph));
+        assertDeadEndsNear(graph, new double[][]{{0, 0}, {400, 0}, {200, 200}});
+    }
+
+    @Test
+    void closedLoopHasNoEnds() {
+        Random random = new Random(3);
+        List<List<PositionalData>> trips = new ArrayList<>();
+        for (int t = 0; t < 5; t++) {
+            List<PositionalData> loop = new ArrayList<>();
+            loop.addAll(trip(random, 0, 0, 200, 0));
+            loop.addAll(trip(random, 200, 0, 200, 200));
+            loop.addAll(trip(random, 200, 200, 0, 200));
+            loop.addAll(trip(random, 0, 200, 0, 0));
+            trips.add(loop);
+        }
+
+        RoadGraph graph = builder.build(trips, config);
+        assertEquals(1, graph.getComponentCount());
+        assertTrue(graph.getNodeCount() >= 3);
+        assertEquals(graph.getNodeCount(), countDegree(graph, 2));
+        assertEquals(1, chainCount(graph));
+    }
+
+    @Test
+    void singleNoisyTripBelowMinDensityLeavesNoRoad() {
+        Random random = new Random(4);
+        List<PositionalData> trip = new ArrayList<>();
+        trip.addAll(trip(random, 0, 0, 150, 0));
+        trip.addAll(trip(random, 150, 0, 150, 150));
+
+        RoadGraph graph = builder.build(List.of(trip), config);
+        assertEquals(0, graph.getNodeCount());
+        assertEquals(0, graph.getEdgeCount());
+    }
+
+    /**
+     * Chains between junctions and ends, plus one per component without either — every chain ends in
+     * two key nodes, so the key node degrees count each chain twice.
+     */
+    private static int chainCount(RoadGraph graph) {
+        int keyDegrees = 0;
+        for (RoadNode node : graph.getNodes()) {
+            int degree = graph.getEdgesOf(node).size();
+            if (degree != 2) keyDegrees += degree;
+        }
+        return keyDegrees == 0 && graph.getNodeCount() > 0 ? graph.getComponentCount() : keyDegrees / 2;
+    }
+
+    private static int countDegree(RoadGraph graph, int degree) {
+        return (int) graph.getNodes().stream().filter(node -> graph.getEdgesOf(node).size() == degree).count();
+    }
+
+    /**
+     * Every dead end lies at one of the real road ends and every road end has one — no spur survived.
+     */
+    private static void assertDeadEndsNear(RoadGraph graph, double[][] ends) {
+        List<RoadNode> deadEnds = graph.getNodes().stream().filter(node -> graph.getEdgesOf(node).size() == 1).toList();
+        assertEquals(ends.length, deadEnds.size());
+        for (double[] end : ends) {
+            assertTrue(deadEnds.stream().anyMatch(node ->
+                            GeoMath.distance(node.getLat(), node.getLon(), lat(end[1]), lon(end[0])) <= END_TOLERANCE_METERS),
+                    "no dead end near " + end[0] + ", " + end[1]);
+        }
+    }
+
+    /**
+     * Points every 3 m from (x0, y0) to (x1, y1), in meters east and north of the origin, with lateral noise.
+     */
+    private static List<PositionalData> trip(Random random, double x0, double y0, double x1, double y1) {
+        double length = Math.hypot(x1 - x0, y1 - y0);
+        double normalX = -(y1 - y0) / length, normalY = (x1 - x0) / length;
+        int steps = (int) Math.ceil(length / 3.0);
+        List<PositionalData> points = new ArrayList<>(steps + 1);
+        Instant time = Instant.parse("2025-05-01T08:00:00Z");
+        for (int s = 0; s <= steps; s++) {
+            double t = (double) s / steps;
+            double offset = (random.nextDouble() * 2 - 1) * NOISE_METERS;
+            double x = x0 + (x1 - x0) * t + normalX * offset;
+            double y = y0 + (y1 - y0) * t + normalY * offset;
+            points.add(new PositionalData(lat(y), lon(x), time.plusSeconds(s)));
+        }
+        return points;
+    }
+
+    private static double lat(double northMeters) {
+        return ORIGIN_LAT + northMeters / METERS_PER_DEGREE;
+    }
+
+    private static double lon(double eastMeters) {
+        return ORIGIN_LON + eastMeters / (METERS_PER_DEGREE * Math.cos(Math.toRadians(ORIGIN_LAT)));
+    }
+}
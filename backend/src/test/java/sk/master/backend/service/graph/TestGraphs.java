@@ -0,0 +1,82 @@
+package sk.master.backend.service.graph;
+
+import sk.master.backend.persistence.model.RoadEdge;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Graph fixtures and a reference Dijkstra shared by the graph algorithm tests.
+ */
+public final class TestGraphs {
+
+    private TestGraphs() {
+    }
+
+    /**
+     * {@code size x size} grid with 100 m edges; node ids are {@code "x_y"}.
+     */
+    public static RoadGraph grid(int size) {
+        RoadGraph graph = new RoadGraph();
+        RoadNode[][] nodes = new RoadNode[size][size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                nodes[x][y] = new RoadNode(x + "_" + y, 48.0 + x * 1e-4, 17.0 + y * 1e-4);
+                graph.addNode(nodes[x][y]);
+                if (x > 0) graph.addEdge(nodes[x - 1][y], nodes[x][y], 100);
+                if (y > 0) graph.addEdge(nodes[x][y - 1], nodes[x][y], 100);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Nodes {@code "n0".."n(count-1)"} with about 1.5 edges per node between nearby ids. Small integer
+     * lengths give many equal-length paths; real lengths make shortest paths unambiguous.
+     */
+    public static RoadGraph randomGraph(Random random, int nodeCount, boolean integerLengths) {
+        RoadGraph graph = new RoadGraph();
+        RoadNode[] nodes = new RoadNode[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = new RoadNode("n" + i, 48.0 + random.nextDouble() * 0.1, 17.0 + random.nextDouble() * 0.1);
+            graph.addNode(nodes[i]);
+        }
+        for (int e = 0; e < nodeCount * 3 / 2; e++) {
+            int u = random.nextInt(nodeCount);
+            int v = Math.floorMod(u + random.nextInt(11) - 5, nodeCount);
+            double length = integerLengths ? 1 + random.nextInt(3) : 1 + random.nextDouble() * 100;
+            if (u != v) graph.addEdge(nodes[u], nodes[v], length);
+        }
+        return graph;
+    }
+
+    /**
+     * Distance from {@code sourceId} to every node it reaches, by a textbook Dijkstra over the edge set.
+     */
+    public static Map<String, Double> distances(RoadGraph graph, String sourceId) {
+        Map<String, List<RoadEdge>> adjacency = new HashMap<>();
+        for (RoadEdge edge : graph.getEdges()) {
+            adjacency.computeIfAbsent(edge.sourceId(), _ -> new ArrayList<>()).add(edge);
+            adjacency.computeIfAbsent(edge.targetId(), _ -> new ArrayList<>()).add(edge);
+        }
+        Map<String, Double> distance = new HashMap<>();
+        PriorityQueue<Map.Entry<String, Double>> queue = new PriorityQueue<>(Map.Entry.comparingByValue());
+        queue.add(Map.entry(sourceId, 0.0));
+        while (!queue.isEmpty()) {
+            Map.Entry<String, Double> entry = queue.poll();
+            if (distance.containsKey(entry.getKey())) continue;
+            distance.put(entry.getKey(), entry.getValue());
+            for (RoadEdge edge : adjacency.getOrDefault(entry.getKey(), List.of())) {
+                String other = edge.sourceId().equals(entry.getKey()) ? edge.targetId() : edge.sourceId();
+                if (!distance.containsKey(other)) queue.add(Map.entry(other, entry.getValue() + edge.distanceMeters()));
+            }
+        }
+        return distance;
+    }
+}
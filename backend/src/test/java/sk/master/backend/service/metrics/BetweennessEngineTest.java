@@ -0,0 +1,90 @@
+package sk.master.backend.service.metrics;
+
+import org.jgrapht.alg.scoring.BetweennessCentrality;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+import sk.master.backend.service.graph.CompactGraph;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static sk.master.backend.service.graph.TestGraphs.grid;
+import static sk.master.backend.service.graph.TestGraphs.randomGraph;
+
+class BetweennessEngineTest {
+
+    private static MetricsExecutor executor;
+    private static BetweennessEngine engine;
+
+    @BeforeAll
+    static void setUp() {
+        executor = new MetricsExecutor(4);
+        engine = new BetweennessEngine(executor, 256);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void matchesJGraphTWithRealWeights() {
+        for (long seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+            assertSameAsJGraphT(randomGraph(random, 20 + random.nextInt(150), false));
+        }
+    }
+
+    @Test
+    void matchesJGraphTWithManyEqualShortestPaths() {
+        // Small integer lengths give many equal-length paths, exercising sigma counting and predecessor checks
+        for (long seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+            assertSameAsJGraphT(randomGraph(random, 20 + random.nextInt(150), true));
+        }
+        assertSameAsJGraphT(grid(12));
+    }
+
+    @Test
+    void matchesJGraphTOnSeveralComponents() {
+        Random random = new Random(42);
+        RoadGraph graph = randomGraph(random, 60, true);
+        RoadGraph other = randomGraph(random, 40, false);
+        for (RoadNode node : other.getNodes()) graph.addNode(new RoadNode("o" + node.getId(), node.getLat(), node.getLon()));
+        other.getEdges().forEach(edge -> graph.addEdge(graph.getNode("o" + edge.sourceId()),
+                graph.getNode("o" + edge.targetId()), edge.distanceMeters()));
+        graph.addNode(new RoadNode("isolated", 48.5, 17.5));
+        assertSameAsJGraphT(graph);
+    }
+
+    @Test
+    void sampledEstimateIsScaledToTheFullGraph() {
+        RoadGraph graph = grid(30);
+        CompactGraph compactGraph = CompactGraph.of(graph);
+        double[] exact = engine.compute(compactGraph, compactGraph.nodeCount()).betweenness();
+        BetweennessEngine.Result sampled = engine.compute(compactGraph, compactGraph.nodeCount() / 2);
+        double exactTotal = 0, sampledTotal = 0;
+        for (int v = 0; v < exact.length; v++) {
+            exactTotal += exact[v];
+            sampledTotal += sampled.betweenness()[v];
+        }
+        assertEquals(compactGraph.nodeCount() / 2, sampled.samples());
+        assertTrue(Math.abs(sampledTotal - exactTotal) < 0.1 * exactTotal);
+    }
+
+    private static void assertSameAsJGraphT(RoadGraph graph) {
+        Map<RoadNode, Double> expected = new BetweennessCentrality<>(graph.getGraph()).getScores();
+        CompactGraph compactGraph = CompactGraph.of(graph);
+        BetweennessEngine.Result actual = engine.compute(compactGraph, compactGraph.nodeCount());
+        assertTrue(actual.exact());
+        for (int v = 0; v < compactGraph.nodeCount(); v++) {
+            double want = expected.get(compactGraph.node(v));
+            assertEquals(want, actual.betweenness()[v], 1e-9 * Math.max(1.0, want), compactGraph.node(v).getId());
+        }
+    }
+}
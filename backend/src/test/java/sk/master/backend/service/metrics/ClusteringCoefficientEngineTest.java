@@ -0,0 +1,97 @@
+package sk.master.backend.service.metrics;
+
+import org.jgrapht.alg.scoring.ClusteringCoefficient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+import sk.master.backend.service.graph.CompactGraph;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClusteringCoefficientEngineTest {
+
+    private static MetricsExecutor executor;
+    private static ClusteringCoefficientEngine engine;
+
+    @BeforeAll
+    static void setUp() {
+        executor = new MetricsExecutor(4);
+        engine = new ClusteringCoefficientEngine(executor);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void matchesJGraphTOnRandomGraphs() {
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            RoadGraph graph = randomGraph(random, 50 + random.nextInt(3000), 0.5 + random.nextDouble() * 4);
+            assertSameAsJGraphT(graph);
+        }
+    }
+
+    @Test
+    void matchesJGraphTOnGridWithDiagonals() {
+        // Spans several worker blocks and has many triangles, unlike a plain grid
+        Random random = new Random(7);
+        int size = 120;
+        RoadNode[][] nodes = new RoadNode[size][size];
+        RoadGraph graph = new RoadGraph();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                nodes[x][y] = new RoadNode(x + "_" + y, 48.0 + x * 1e-4, 17.0 + y * 1e-4);
+                graph.addNode(nodes[x][y]);
+            }
+        }
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (x + 1 < size) graph.addEdge(nodes[x][y], nodes[x + 1][y], 10);
+                if (y + 1 < size) graph.addEdge(nodes[x][y], nodes[x][y + 1], 10);
+                if (x + 1 < size && y + 1 < size && random.nextDouble() < 0.3) {
+                    graph.addEdge(nodes[x][y], nodes[x + 1][y + 1], 14);
+                }
+            }
+        }
+        assertSameAsJGraphT(graph);
+    }
+
+    @Test
+    void emptyAndEdgelessGraphsHaveZeroCoefficient() {
+        assertEquals(0.0, engine.compute(CompactGraph.of(new RoadGraph())).averageCoefficient());
+
+        RoadGraph isolated = new RoadGraph();
+        isolated.addNode(new RoadNode("a", 48.0, 17.0));
+        isolated.addNode(new RoadNode("b", 48.1, 17.1));
+        assertEquals(0.0, engine.compute(CompactGraph.of(isolated)).averageCoefficient());
+    }
+
+    private static void assertSameAsJGraphT(RoadGraph graph) {
+        double expected = new ClusteringCoefficient<>(graph.getGraph()).getAverageClusteringCoefficient();
+        ClusteringCoefficientEngine.Result actual = engine.compute(CompactGraph.of(graph));
+        assertEquals(expected, actual.averageCoefficient(), 1e-12);
+    }
+
+    private static RoadGraph randomGraph(Random random, int nodeCount, double averageDegree) {
+        RoadGraph graph = new RoadGraph();
+        RoadNode[] nodes = new RoadNode[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = new RoadNode("n" + i, 48.0 + random.nextDouble() * 0.1, 17.0 + random.nextDouble() * 0.1);
+            graph.addNode(nodes[i]);
+        }
+        long edges = Math.round(nodeCount * averageDegree / 2);
+        for (long e = 0; e < edges; e++) {
+            int u = random.nextInt(nodeCount);
+            // Mostly local edges, so triangles actually occur
+            int v = Math.floorMod(u + random.nextInt(11) - 5, nodeCount);
+            if (u != v) graph.addEdge(nodes[u], nodes[v], 1 + random.nextDouble() * 100);
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,140 @@
+package sk.master.backend.service.metrics;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+import sk.master.backend.service.graph.CompactGraph;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static sk.master.backend.service.graph.TestGraphs.distances;
+import static sk.master.backend.service.graph.TestGraphs.grid;
+
+class EccentricityEngineTest {
+
+    private static MetricsExecutor executor;
+    private static EccentricityEngine engine;
+
+    @BeforeAll
+    static void setUp() {
+        executor = new MetricsExecutor(4);
+        engine = new EccentricityEngine(executor);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void matchesAllSourcesDijkstraOnRandomMultiComponentGraphs() {
+        for (long seed = 0; seed < 30; seed++) {
+            Random random = new Random(seed);
+            assertSameAsBruteForce(multiComponentGraph(random, 1 + random.nextInt(6), random.nextBoolean()));
+        }
+    }
+
+    @Test
+    void matchesAllSourcesDijkstraWithEqualEccentricities() {
+        // Every node of a uniform cycle has the same eccentricity, so no bound separates the candidates
+        assertSameAsBruteForce(cycle(40));
+        assertSameAsBruteForce(cycle(41));
+        assertSameAsBruteForce(grid(15));
+    }
+
+    @Test
+    void singleNodeComponentsAffectNeitherMetric() {
+        RoadGraph isolated = new RoadGraph();
+        isolated.addNode(new RoadNode("a", 48.0, 17.0));
+        isolated.addNode(new RoadNode("b", 48.1, 17.1));
+        assertSameAsBruteForce(isolated);
+        EccentricityEngine.Result result = engine.compute(CompactGraph.of(isolated));
+        assertEquals(0.0, result.diameterMeters());
+        assertEquals(0.0, result.radiusMeters());
+
+        RoadGraph graph = cycle(12);
+        graph.addNode(new RoadNode("lonely", 48.5, 17.5));
+        assertSameAsBruteForce(graph);
+        assertEquals(600.0, engine.compute(CompactGraph.of(graph)).radiusMeters(), 1e-9);
+    }
+
+    @Test
+    void boundsContainTheExactValues() {
+        for (long seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+            RoadGraph graph = multiComponentGraph(random, 1 + random.nextInt(4), false);
+            double[] exact = bruteForce(graph);
+            EccentricityEngine.Bounds bounds = engine.bound(CompactGraph.of(graph), 0.05, Long.MAX_VALUE, () -> false);
+            assertTrue(bounds.within(0.05));
+            assertTrue(bounds.diameterLower() <= exact[0] + 1e-9 && exact[0] <= bounds.diameterUpper() + 1e-9);
+            assertTrue(bounds.radiusLower() <= exact[1] + 1e-9 && exact[1] <= bounds.radiusUpper() + 1e-9);
+        }
+    }
+
+    private static void assertSameAsBruteForce(RoadGraph graph) {
+        double[] expected = bruteForce(graph);
+        EccentricityEngine.Result actual = engine.compute(CompactGraph.of(graph));
+        assertEquals(expected[0], actual.diameterMeters(), 1e-9 * Math.max(1.0, expected[0]), "diameter");
+        assertEquals(expected[1], actual.radiusMeters(), 1e-9 * Math.max(1.0, expected[1]), "radius");
+    }
+
+    /**
+     * Diameter and radius from a Dijkstra at every node; the radius only over nodes with a neighbour.
+     */
+    private static double[] bruteForce(RoadGraph graph) {
+        double diameter = 0.0, radius = Double.POSITIVE_INFINITY;
+        for (RoadNode node : graph.getNodes()) {
+            if (graph.getEdgesOf(node).isEmpty()) continue;
+            double eccentricity = 0.0;
+            for (double d : distances(graph, node.getId()).values()) eccentricity = Math.max(eccentricity, d);
+            diameter = Math.max(diameter, eccentricity);
+            radius = Math.min(radius, eccentricity);
+        }
+        return new double[]{diameter, radius == Double.POSITIVE_INFINITY ? 0.0 : radius};
+    }
+
+    private static RoadGraph cycle(int size) {
+        RoadGraph graph = new RoadGraph();
+        RoadNode[] nodes = new RoadNode[size];
+        for (int i = 0; i < size; i++) {
+            double angle = 2 * Math.PI * i / size;
+            nodes[i] = new RoadNode("c" + i, 48.0 + Math.sin(angle) * 1e-3, 17.0 + Math.cos(angle) * 1e-3);
+            graph.addNode(nodes[i]);
+            if (i > 0) graph.addEdge(nodes[i - 1], nodes[i], 100);
+        }
+        graph.addEdge(nodes[size - 1], nodes[0], 100);
+        return graph;
+    }
+
+    /**
+     * Connected components of random size, a quarter of them single nodes; small integer lengths give
+     * many nodes with equal eccentricity.
+     */
+    private static RoadGraph multiComponentGraph(Random random, int components, boolean integerLengths) {
+        RoadGraph graph = new RoadGraph();
+        int id = 0;
+        for (int c = 0; c < components; c++) {
+            int size = random.nextInt(4) == 0 ? 1 : 2 + random.nextInt(150);
+            RoadNode[] nodes = new RoadNode[size];
+            for (int i = 0; i < size; i++) {
+                nodes[i] = new RoadNode("n" + id++, 48.0 + random.nextDouble() * 0.1, 17.0 + random.nextDouble() * 0.1);
+                graph.addNode(nodes[i]);
+            }
+            // A random spanning tree keeps the component connected, the extra edges close cycles
+            for (int i = 1; i < size; i++) graph.addEdge(nodes[random.nextInt(i)], nodes[i], length(random, integerLengths));
+            for (int e = 0; e < size / 2; e++) {
+                int u = random.nextInt(size), v = random.nextInt(size);
+                if (u != v) graph.addEdge(nodes[u], nodes[v], length(random, integerLengths));
+            }
+        }
+        return graph;
+    }
+
+    private static double length(Random random, boolean integerLengths) {
+        return integerLengths ? 1 + random.nextInt(3) : 1 + random.nextDouble() * 100;
+    }
+}
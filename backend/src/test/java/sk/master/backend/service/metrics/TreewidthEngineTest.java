@@ -0,0 +1,119 @@
+package sk.master.backend.service.metrics;
+
+import org.junit.jupiter.api.Test;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+import sk.master.backend.service.graph.CompactGraph;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static sk.master.backend.service.graph.TestGraphs.grid;
+
+class TreewidthEngineTest {
+
+    // Far more than any graph here needs, so only the zero-budget test stops early
+    private static final long BUDGET_MILLIS = 600_000;
+
+    private final TreewidthEngine engine = new TreewidthEngine(TreewidthEngine.Heuristic.MIN_DEGREE, BUDGET_MILLIS);
+
+    @Test
+    void treeHasTreewidthOne() {
+        for (long seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+            RoadGraph tree = new RoadGraph();
+            RoadNode[] nodes = nodes(tree, 2 + random.nextInt(500));
+            for (int i = 1; i < nodes.length; i++) tree.addEdge(nodes[random.nextInt(i)], nodes[i], 10);
+            assertExact(tree, 1);
+        }
+    }
+
+    @Test
+    void cycleHasTreewidthTwo() {
+        RoadGraph cycle = new RoadGraph();
+        RoadNode[] nodes = nodes(cycle, 300);
+        for (int i = 0; i < nodes.length; i++) cycle.addEdge(nodes[i], nodes[(i + 1) % nodes.length], 10);
+        assertExact(cycle, 2);
+    }
+
+    @Test
+    void completeGraphHasTreewidthNMinusOne() {
+        for (int n = 2; n <= 12; n++) {
+            RoadGraph complete = new RoadGraph();
+            RoadNode[] nodes = nodes(complete, n);
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) complete.addEdge(nodes[i], nodes[j], 10);
+            }
+            assertExact(complete, n - 1);
+        }
+    }
+
+    @Test
+    void gridIsBoundedByItsSide() {
+        // The k x k grid has treewidth k, but every subgraph has a node of degree 2 or less
+        for (int k = 2; k <= 20; k++) {
+            CompactGraph grid = CompactGraph.of(grid(k));
+            assertEquals(2, engine.degeneracy(grid));
+            for (TreewidthEngine.Heuristic heuristic : TreewidthEngine.Heuristic.values()) {
+                TreewidthEngine.Result result = engine.compute(grid, heuristic, BUDGET_MILLIS);
+                assertTrue(result.complete());
+                assertTrue(result.upperBound() >= k, heuristic + " on " + k + "x" + k);
+            }
+        }
+    }
+
+    @Test
+    void degeneracyNeverExceedsTheUpperBound() {
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            RoadGraph graph = new RoadGraph();
+            RoadNode[] nodes = nodes(graph, 20 + random.nextInt(400));
+            double density = 0.5 + random.nextDouble() * 4;
+            for (int e = 0; e < nodes.length * density / 2; e++) {
+                int u = random.nextInt(nodes.length);
+                int v = random.nextBoolean() ? random.nextInt(nodes.length) : Math.floorMod(u + random.nextInt(11) - 5, nodes.length);
+                if (u != v) graph.addEdge(nodes[u], nodes[v], 10);
+            }
+            CompactGraph compactGraph = CompactGraph.of(graph);
+            int lower = engine.degeneracy(compactGraph);
+            for (TreewidthEngine.Heuristic heuristic : TreewidthEngine.Heuristic.values()) {
+                int upper = engine.compute(compactGraph, heuristic, BUDGET_MILLIS).upperBound();
+                assertTrue(lower <= upper, heuristic + ": " + lower + " > " + upper);
+            }
+        }
+    }
+
+    @Test
+    void stoppedEliminationFallsBackToRemainingMinusOne() {
+        // A zero budget stops at the first check, after 255 eliminations; the rest are bounded by their count - 1
+        CompactGraph grid = CompactGraph.of(grid(40));
+        TreewidthEngine.Result result = engine.compute(grid, TreewidthEngine.Heuristic.MIN_DEGREE, 0);
+        assertFalse(result.complete());
+        assertEquals(grid.nodeCount() - 255 - 1, result.upperBound());
+
+        TreewidthEngine.Result minFill = engine.compute(grid, TreewidthEngine.Heuristic.MIN_FILL, 0);
+        assertFalse(minFill.complete());
+        assertTrue(minFill.upperBound() >= 40);
+    }
+
+    private void assertExact(RoadGraph graph, int treewidth) {
+        CompactGraph compactGraph = CompactGraph.of(graph);
+        assertEquals(treewidth, engine.degeneracy(compactGraph));
+        for (TreewidthEngine.Heuristic heuristic : TreewidthEngine.Heuristic.values()) {
+            TreewidthEngine.Result result = engine.compute(compactGraph, heuristic, BUDGET_MILLIS);
+            assertTrue(result.complete());
+            assertEquals(treewidth, result.upperBound(), heuristic.name());
+        }
+    }
+
+    private static RoadNode[] nodes(RoadGraph graph, int count) {
+        RoadNode[] nodes = new RoadNode[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = new RoadNode("n" + i, 48.0 + i * 1e-5, 17.0);
+            graph.addNode(nodes[i]);
+        }
+        return nodes;
+    }
+}
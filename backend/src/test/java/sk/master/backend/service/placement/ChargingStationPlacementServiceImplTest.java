@@ -0,0 +1,114 @@
+package sk.master.backend.service.placement;
+
+import org.junit.jupiter.api.Test;
+import sk.master.backend.persistence.dto.StationVerificationRequestDto;
+import sk.master.backend.persistence.dto.StationVerificationResponseDto;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.persistence.model.RoadNode;
+import sk.master.backend.service.placement.strategy.GraspStrategy;
+import sk.master.backend.service.placement.strategy.GreedyStrategy;
+import sk.master.backend.service.placement.strategy.RandomStrategy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static sk.master.backend.service.graph.TestGraphs.distances;
+import static sk.master.backend.service.graph.TestGraphs.randomGraph;
+
+class ChargingStationPlacementServiceImplTest {
+
+    private final ChargingStationPlacementServiceImpl service = new ChargingStationPlacementServiceImpl(
+            new RandomStrategy(), new GreedyStrategy(), new GraspStrategy(), new CoverageEngine());
+
+    @Test
+    void verificationMatchesRemovingEachStation() {
+        for (long seed = 0; seed < 30; seed++) {
+            Random random = new Random(seed);
+            RoadGraph graph = randomGraph(random, 20 + random.nextInt(150), false);
+            List<String> stationIds = new ArrayList<>();
+            for (int i = 1 + random.nextInt(15); i > 0; i--) stationIds.add("n" + random.nextInt(graph.getNodeCount()));
+            double radius = 50 + random.nextDouble() * 400;
+            assertSameAsBruteForce(graph, stationIds, 1 + random.nextInt(4), radius);
+        }
+    }
+
+    @Test
+    void noMoreStationsThanKLeavesEveryStationNeeded() {
+        RoadGraph graph = randomGraph(new Random(7), 80, false);
+        assertSameAsBruteForce(graph, List.of("n3", "n40"), 3, 500);
+        assertSameAsBruteForce(graph, List.of("n3", "n40", "n77"), 3, Double.MAX_VALUE);
+
+        StationVerificationResponseDto response = verify(graph, List.of("n3", "n40"), 3, Double.MAX_VALUE);
+        assertFalse(response.feasible());
+        assertEquals(graph.getNodeCount(), response.uncoveredNodeIds().size());
+        assertEquals(List.of(), response.redundantStationIds());
+    }
+
+    @Test
+    void unknownStationsAreReportedAndCoverNothing() {
+        RoadGraph graph = randomGraph(new Random(9), 60, false);
+        StationVerificationResponseDto response = verify(graph, List.of("missing-a", "missing-b"), 1, 300);
+        assertFalse(response.feasible());
+        assertEquals(0, response.stationCount());
+        assertEquals(graph.getNodeCount(), response.uncoveredNodeIds().size());
+        assertEquals(List.of(), response.redundantStationIds());
+        assertEquals(List.of("missing-a", "missing-b"), response.missingStationIds());
+
+        assertSameAsBruteForce(graph, List.of("missing-a", "n5", "n30"), 1, 300);
+    }
+
+    private void assertSameAsBruteForce(RoadGraph graph, List<String> requestedIds, int k, double radius) {
+        List<String> stationIds = requestedIds.stream().distinct().filter(id -> graph.getNode(id) != null).toList();
+        List<Map<String, Double>> fromStation = stationIds.stream().map(id -> distances(graph, id)).toList();
+        int[] coverage = coverage(graph, fromStation, -1, radius);
+
+        List<String> uncovered = new ArrayList<>();
+        for (RoadNode node : graph.getNodes()) {
+            if (coverage[index(node)] < k) uncovered.add(node.getId());
+        }
+        // A station is redundant when removing it leaves every node it changes still covered k times
+        List<String> redundant = new ArrayList<>();
+        for (int s = 0; s < stationIds.size(); s++) {
+            int[] without = coverage(graph, fromStation, s, radius);
+            boolean keepsCoverage = true;
+            for (int v = 0; v < coverage.length; v++) {
+                if (without[v] != coverage[v] && without[v] < k) keepsCoverage = false;
+            }
+            if (keepsCoverage) redundant.add(stationIds.get(s));
+        }
+
+        StationVerificationResponseDto response = verify(graph, requestedIds, k, radius);
+        assertEquals(uncovered.isEmpty(), response.feasible());
+        assertEquals(new LinkedHashSet<>(uncovered), new LinkedHashSet<>(response.uncoveredNodeIds()));
+        assertEquals(redundant, response.redundantStationIds());
+        assertEquals(stationIds.size(), response.stationCount());
+    }
+
+    /**
+     * Stations within {@code radius} of every node, leaving out station {@code skip}.
+     */
+    private static int[] coverage(RoadGraph graph, List<Map<String, Double>> fromStation, int skip, double radius) {
+        int[] coverage = new int[graph.getNodeCount()];
+        for (int s = 0; s < fromStation.size(); s++) {
+            if (s == skip) continue;
+            for (Map.Entry<String, Double> entry : fromStation.get(s).entrySet()) {
+                if (entry.getValue() <= radius) coverage[index(graph.getNode(entry.getKey()))]++;
+            }
+        }
+        return coverage;
+    }
+
+    // Nodes of randomGraph are named n0..n(count-1)
+    private static int index(RoadNode node) {
+        return Integer.parseInt(node.getId().substring(1));
+    }
+
+    private StationVerificationResponseDto verify(RoadGraph graph, List<String> stationIds, int k, double radius) {
+        return service.verifyStations(graph, new StationVerificationRequestDto(null, stationIds, k, radius));
+    }
+}
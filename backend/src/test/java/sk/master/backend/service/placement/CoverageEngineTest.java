@@ -0,0 +1,102 @@
+package sk.master.backend.service.placement;
+
+import org.junit.jupiter.api.Test;
+import sk.master.backend.persistence.model.RoadGraph;
+import sk.master.backend.service.graph.CompactGraph;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sk.master.backend.service.graph.TestGraphs.distances;
+import static sk.master.backend.service.graph.TestGraphs.randomGraph;
+
+class CoverageEngineTest {
+
+    private final CoverageEngine engine = new CoverageEngine();
+
+    @Test
+    void reportMatchesPerStationDijkstra() {
+        for (long seed = 0; seed < 30; seed++) {
+            Random random = new Random(seed);
+            RoadGraph graph = randomGraph(random, 20 + random.nextInt(200), false);
+            int n = graph.getNodeCount();
+            int[] stations = new int[1 + random.nextInt(12)];
+            for (int i = 0; i < stations.length; i++) stations[i] = random.nextInt(n);
+            double radius = random.nextBoolean() ? Double.POSITIVE_INFINITY : 50 + random.nextDouble() * 400;
+            assertSameAsBruteForce(graph, stations, 1 + random.nextInt(4), radius);
+        }
+    }
+
+    @Test
+    void duplicateStationsCountOnceUnderTheirFirstIndex() {
+        RoadGraph graph = randomGraph(new Random(3), 150, false);
+        int[] stations = {4, 90, 4, 31, 90, 4};
+        assertSameAsBruteForce(graph, stations, 2, 300);
+
+        CoverageEngine.Report report = engine.report(CompactGraph.of(graph), stations, 2, 300);
+        for (int duplicate : new int[]{2, 4, 5}) {
+            assertEquals(0, report.assignedNodes()[duplicate]);
+            assertEquals(0, report.coveringNodes()[duplicate]);
+        }
+    }
+
+    @Test
+    void kAboveStationCountCoversNoNode() {
+        RoadGraph graph = randomGraph(new Random(5), 120, false);
+        int[] stations = {0, 50, 50, 100};
+        assertSameAsBruteForce(graph, stations, 4, Double.POSITIVE_INFINITY);
+
+        // Labels are sized by the stations, not by k
+        CoverageEngine.Report report = engine.report(CompactGraph.of(graph), stations, Integer.MAX_VALUE, 200);
+        assertEquals(0, report.coveredNodes());
+        assertEquals(0.0, report.coveredFraction());
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.report(CompactGraph.of(graph), stations, 0, 200));
+    }
+
+    private void assertSameAsBruteForce(RoadGraph graph, int[] stations, int k, double radius) {
+        CompactGraph compactGraph = CompactGraph.of(graph);
+        int n = compactGraph.nodeCount();
+        CoverageEngine.Report report = engine.report(compactGraph, stations, k, radius);
+
+        // Distances from every distinct station; a duplicate keeps no distances of its own
+        List<Map<String, Double>> fromStation = new ArrayList<>();
+        for (int i = 0; i < stations.length; i++) {
+            boolean duplicate = false;
+            for (int j = 0; j < i; j++) duplicate |= stations[j] == stations[i];
+            fromStation.add(duplicate ? Map.of() : distances(graph, compactGraph.node(stations[i]).getId()));
+        }
+
+        int[] assigned = new int[stations.length];
+        int[] covering = new int[stations.length];
+        int covered = 0;
+        double max = 0.0;
+        for (int v = 0; v < n; v++) {
+            String id = compactGraph.node(v).getId();
+            List<double[]> reaching = new ArrayList<>();
+            for (int i = 0; i < stations.length; i++) {
+                Double d = fromStation.get(i).get(id);
+                if (d != null && d <= radius) reaching.add(new double[]{d, i});
+            }
+            reaching.sort(Comparator.comparingDouble(entry -> entry[0]));
+            if (!reaching.isEmpty()) assigned[(int) reaching.getFirst()[1]]++;
+            for (int i = 0; i < Math.min(k, reaching.size()); i++) covering[(int) reaching.get(i)[1]]++;
+            double kth = reaching.size() >= k ? reaching.get(k - 1)[0] : -1.0;
+            assertEquals(kth, report.kthDistances()[v], 1e-9, id);
+            if (kth >= 0) {
+                covered++;
+                max = Math.max(max, kth);
+            }
+        }
+        assertEquals(covered, report.coveredNodes());
+        assertEquals(max, report.maxKthDistance(), 1e-9);
+        assertArrayEquals(assigned, report.assignedNodes());
+        assertArrayEquals(covering, report.coveringNodes());
+    }
+}
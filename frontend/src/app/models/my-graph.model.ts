@@ -59,6 +59,23 @@ export interface PlacementResponseDto {
   totalNodes: number;
   coverageDistances: Record<string, number>;
   computationTimeMs: number;
+  coverage?: CoverageReportDto;
+}
+
+export interface StationLoadDto {
+  id: string;
+  assignedNodes: number;
+  coveringNodes: number;
+}
+
+export interface CoverageReportDto {
+  k: number;
+  maxRadiusMeters: number | null;
+  coveredFraction: number;
+  uncoveredNodes: number;
+  meanKthDistanceMeters: number;
+  maxKthDistanceMeters: number;
+  stationLoads: StationLoadDto[];
 }
 
 export interface PlacementResultInfo {
@@ -4,6 +4,16 @@ export interface PipelineConfig {
 
   // Preprocessing
   maxSpeedKmh: number;
+  thinningMinDistanceMeters: number;
+  thinningMinIntervalSeconds: number;
+
+  // Construction
+  simplifyToleranceMeters: number;
+  insertionMode: 'MATCHED_POINTS' | 'GRAPHHOPPER_EDGES' | 'SNAP_TO_EXISTING';
+  snapToleranceMeters: number;
+  constructionEngine: 'MAP_MATCHING' | 'DENSITY_RASTER';
+  rasterCellMeters: number;
+  rasterMinDensity: number;
 
   // H3
   h3DedupResolution: number;